@@ -0,0 +1,336 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.*;
+
+// ----------- NIO binary game server --------------
+// Serves Game sessions from a single selector thread using fixed-size binary frames.
+//
+// Request, 8 bytes:  int session | short slot | byte symbol | byte op
+//   JOIN  slot is the board size (0 for 3x3), symbol is ignored; allowed again once a game ends
+//   MOVE  slot is 0-based, symbol must be the sender's seat (0 = X, 1 = O)
+//   STATE asks for a fresh snapshot
+// Response, 12-byte header then the board snapshot:
+//   int session | short slot | byte symbol | byte code | byte status | byte turn | short cells | cells bytes
+//   code is OK, REJECTED or ABANDONED; status is the Board status (0xFF in progress);
+//   each snapshot byte is 0 empty, 1 X, 2 O.
+//
+// Every session keeps its snapshot in a direct buffer that moves update in place,
+// and responses gather the header and that buffer in one write without copying it.
+public class BinaryGameServer {
+    static final int REQUEST_SIZE = 8;
+    static final int HEADER_SIZE = 12;
+    static final byte OP_JOIN = 1;
+    static final byte OP_MOVE = 2;
+    static final byte OP_STATE = 3;
+    static final byte CODE_OK = 0;
+    static final byte CODE_REJECTED = 1;
+    static final byte CODE_ABANDONED = 2;
+
+    private static final int READ_BUFFER_SIZE = REQUEST_SIZE * 128;
+    private static final int PENDING_BUFFER_SIZE = 64 * 1024; // larger backlogs drop the connection
+    private static final ByteBuffer EMPTY = ByteBuffer.allocateDirect(0);
+
+    private final int port;
+    private final Map<Integer, Session> sessions = new HashMap<>();
+    private final BufferPool readBuffers = new BufferPool(READ_BUFFER_SIZE);
+    private final BufferPool pendingBuffers = new BufferPool(PENDING_BUFFER_SIZE);
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running;
+
+    public BinaryGameServer(int port) {
+        this.port = port;
+    }
+
+    // Binds the port and runs the selector loop on a background thread
+    public void start() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        Thread loop = new Thread(this::selectLoop, "binary-game-server");
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    public void stop() throws IOException {
+        running = false;
+        selector.wakeup();
+        serverChannel.close();
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    private void selectLoop() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (!key.isValid()) continue;
+                        if (key.isAcceptable()) accept();
+                        if (key.isValid() && key.isReadable()) read(key);
+                        if (key.isValid() && key.isWritable()) flush((Connection) key.attachment());
+                    } catch (IOException | RuntimeException e) {
+                        close((Connection) key.attachment()); // one bad connection must not stop the loop
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // selector failed; the server stops
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException e) {
+                    // already closing
+                }
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Connection connection = new Connection(channel, readBuffers.acquire());
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        }
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        ByteBuffer in = connection.in;
+        if (connection.channel.read(in) < 0) {
+            close(connection);
+            return;
+        }
+        in.flip();
+        while (in.remaining() >= REQUEST_SIZE && connection.key.isValid()) {
+            int session = in.getInt();
+            int slot = in.getShort();
+            int symbol = in.get();
+            byte op = in.get();
+            handle(connection, session, slot, symbol, op);
+        }
+        if (!connection.closed) in.compact();
+    }
+
+    private void handle(Connection connection, int id, int slot, int symbol, byte op) throws IOException {
+        switch (op) {
+            case OP_JOIN: {
+                if (connection.session != null && !connection.session.game.isFinished()) {
+                    reply(connection, id, slot, CODE_REJECTED);
+                    return;
+                }
+                Session session = sessions.get(id);
+                if (session == null) {
+                    int size = slot <= 0 ? 3 : slot;
+                    if (size > 19) {
+                        reply(connection, id, slot, CODE_REJECTED);
+                        return;
+                    }
+                    session = new Session(id, size, Math.min(size, 5));
+                    sessions.put(id, session);
+                }
+                int seat = session.seats[0] == null ? 0 : session.seats[1] == null ? 1 : -1;
+                if (seat < 0) {
+                    reply(connection, id, slot, CODE_REJECTED);
+                    return;
+                }
+                session.seats[seat] = connection;
+                connection.session = session;
+                connection.seat = seat;
+                connection.snapshot = session.snapshot.duplicate();
+                send(connection, id, slot, seat, CODE_OK);
+                return;
+            }
+            case OP_MOVE: {
+                Session session = connection.session;
+                if (session == null || session.id != id || symbol != connection.seat || !session.isFull()) {
+                    reply(connection, id, slot, CODE_REJECTED);
+                    return;
+                }
+                int status = session.game.submitMove(session.players[connection.seat], slot);
+                if (status == Game.MOVE_REJECTED) {
+                    send(connection, id, slot, connection.seat, CODE_REJECTED);
+                    return;
+                }
+                session.snapshot.put(slot, (byte) (connection.seat + 1));
+                for (Connection seat : session.seats) {
+                    send(seat, id, slot, connection.seat, CODE_OK);
+                }
+                if (status != Board.IN_PROGRESS) {
+                    sessions.remove(id);
+                }
+                return;
+            }
+            case OP_STATE:
+                if (connection.session == null) reply(connection, id, slot, CODE_REJECTED);
+                else send(connection, id, slot, connection.seat, CODE_OK);
+                return;
+            default:
+                reply(connection, id, slot, CODE_REJECTED);
+        }
+    }
+
+    // Response without a snapshot, for connections that are not in the session
+    private void reply(Connection connection, int id, int slot, byte code) throws IOException {
+        connection.header.clear();
+        connection.header.putInt(id).putShort((short) slot).put((byte) -1).put(code)
+            .put((byte) Board.IN_PROGRESS).put((byte) -1).putShort((short) 0).flip();
+        write(connection, connection.header, null);
+    }
+
+    private void send(Connection connection, int id, int slot, int symbol, byte code) throws IOException {
+        Session session = connection.session;
+        if (connection.closed || session == null) return; // dropped earlier in the same broadcast
+        Board board = session.game.getBoard();
+        connection.header.clear();
+        connection.header.putInt(id).putShort((short) slot).put((byte) symbol).put(code)
+            .put((byte) board.getStatus()).put((byte) board.getSideToMove())
+            .putShort((short) board.getCellCount()).flip();
+        connection.snapshot.clear();
+        write(connection, connection.header, connection.snapshot);
+    }
+
+    // Gathers header and snapshot straight into the socket; leftovers wait in a pooled buffer
+    private void write(Connection connection, ByteBuffer header, ByteBuffer body) throws IOException {
+        if (connection.closed) return;
+        ByteBuffer[] gather = connection.gather;
+        gather[0] = header;
+        gather[1] = body != null ? body : EMPTY;
+        if (connection.pending == null) {
+            connection.channel.write(gather);
+            if (!header.hasRemaining() && !gather[1].hasRemaining()) return;
+            connection.pending = pendingBuffers.acquire();
+            connection.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+        ByteBuffer pending = connection.pending;
+        if (pending.remaining() < header.remaining() + gather[1].remaining()) {
+            close(connection);
+            return;
+        }
+        pending.put(header).put(gather[1]);
+    }
+
+    private void flush(Connection connection) throws IOException {
+        ByteBuffer pending = connection.pending;
+        if (pending == null) return;
+        pending.flip();
+        connection.channel.write(pending);
+        if (pending.hasRemaining()) {
+            pending.compact();
+            return;
+        }
+        pendingBuffers.release(pending);
+        connection.pending = null;
+        connection.key.interestOps(SelectionKey.OP_READ);
+    }
+
+    private void close(Connection connection) {
+        if (connection == null || connection.closed) return;
+        connection.closed = true;
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+        readBuffers.release(connection.in);
+        if (connection.pending != null) pendingBuffers.release(connection.pending);
+
+        Session session = connection.session;
+        if (session == null) return;
+        session.seats[connection.seat] = null;
+        connection.session = null;
+        if (sessions.remove(session.id, session)) {
+            Connection other = session.seats[1 - connection.seat];
+            if (other != null && !other.closed) {
+                try {
+                    send(other, session.id, -1, other.seat, CODE_ABANDONED);
+                } catch (IOException e) {
+                    close(other);
+                }
+                other.session = null; // its later moves on the abandoned game are rejected
+            }
+        }
+    }
+
+    // Direct buffers of one size, reused across connections; selector thread only
+    private static final class BufferPool {
+        private final int bufferSize;
+        private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+
+        BufferPool(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        ByteBuffer acquire() {
+            ByteBuffer buffer = free.poll();
+            return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        void release(ByteBuffer buffer) {
+            buffer.clear();
+            free.push(buffer);
+        }
+    }
+
+    private static final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer in;
+        final ByteBuffer header = ByteBuffer.allocateDirect(HEADER_SIZE);
+        final ByteBuffer[] gather = new ByteBuffer[2];
+        SelectionKey key;
+        ByteBuffer snapshot; // this connection's view of the session snapshot
+        ByteBuffer pending;
+        Session session;
+        int seat;
+        boolean closed;
+
+        Connection(SocketChannel channel, ByteBuffer in) {
+            this.channel = channel;
+            this.in = in;
+        }
+    }
+
+    private static final class Session {
+        final int id;
+        final RemotePlayer[] players = {new RemotePlayer("Player 1", "X"), new RemotePlayer("Player 2", "O")};
+        final Connection[] seats = new Connection[2];
+        final Game game;
+        final ByteBuffer snapshot;
+
+        Session(int id, int size, int winLength) {
+            this.id = id;
+            this.game = new Game(players[0], players[1], size, winLength);
+            game.setVerbose(false);
+            this.snapshot = ByteBuffer.allocateDirect(size * size);
+        }
+
+        boolean isFull() {
+            return seats[0] != null && seats[1] != null;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // Optional argument: port
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 4001;
+        BinaryGameServer server = new BinaryGameServer(port);
+        server.start();
+        System.out.println("Binary Tic Tac Toe server listening on port " + server.getPort());
+        Thread.currentThread().join();
+    }
+}
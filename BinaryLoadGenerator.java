@@ -0,0 +1,168 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+// ----------- Load generator for BinaryGameServer --------------
+// Opens pairs of connections that play random 3x3 games against each other and
+// measures the round trip from sending a MOVE frame to receiving its response.
+// Each pair first plays unmeasured warm-up games, so the figures are for compiled code.
+//
+// The client threads share the machine with the server: with more pairs than spare
+// cores, a round trip also waits for other pairs' threads to be scheduled, and the
+// tail percentiles measure that rather than the server.
+public class BinaryLoadGenerator {
+    static final int WARM_UP_GAMES = 2000; // per pair
+
+    private final InetSocketAddress address;
+    private final int pairs;
+    private final int gamesPerPair;
+    private long measuredNanos; // from the first measured move of any pair to the last
+
+    public BinaryLoadGenerator(InetSocketAddress address, int pairs, int gamesPerPair) {
+        this.address = address;
+        this.pairs = pairs;
+        this.gamesPerPair = gamesPerPair;
+    }
+
+    // Plays all games and returns the move round trips in nanoseconds, sorted
+    public long[] run() throws InterruptedException {
+        long[][] latencies = new long[pairs][];
+        long[][] windows = new long[pairs][2];
+        Thread[] threads = new Thread[pairs];
+        for (int pair = 0; pair < pairs; pair++) {
+            int index = pair;
+            threads[pair] = new Thread(() -> {
+                try {
+                    latencies[index] = playPair(index, windows[index]);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Pair " + index + " failed", e);
+                }
+            }, "load-pair-" + pair);
+            threads[pair].start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (long[] window : windows) {
+            first = Math.min(first, window[0]);
+            last = Math.max(last, window[1]);
+        }
+        measuredNanos = last - first;
+
+        long[] all = new long[0];
+        for (long[] pairLatencies : latencies) {
+            if (pairLatencies == null) continue;
+            int from = all.length;
+            all = Arrays.copyOf(all, from + pairLatencies.length);
+            System.arraycopy(pairLatencies, 0, all, from, pairLatencies.length);
+        }
+        Arrays.sort(all);
+        return all;
+    }
+
+    // Length of the measured part of the last run, for throughput
+    public long getMeasuredNanos() {
+        return measuredNanos;
+    }
+
+    // Plays the pair's games; window receives the times of its first and last measured moves
+    private long[] playPair(int pair, long[] window) throws IOException {
+        long[] latencies = new long[gamesPerPair * 9];
+        int measured = 0;
+        RandomPlayer chooser = new RandomPlayer("load", "X", pair + 1);
+        ByteBuffer request = ByteBuffer.allocateDirect(BinaryGameServer.REQUEST_SIZE);
+        ByteBuffer response = ByteBuffer.allocateDirect(BinaryGameServer.HEADER_SIZE + 9);
+        try (SocketChannel x = connect(); SocketChannel o = connect()) {
+            SocketChannel[] seats = {x, o};
+            for (int game = -WARM_UP_GAMES; game < gamesPerPair; game++) {
+                int session = pair * 1_000_000 + WARM_UP_GAMES + game;
+                for (SocketChannel seat : seats) {
+                    send(seat, request, session, 3, 0, BinaryGameServer.OP_JOIN);
+                    receive(seat, response);
+                }
+
+                if (game == 0) window[0] = System.nanoTime();
+                Board board = new Board();
+                while (board.getStatus() == Board.IN_PROGRESS) {
+                    int side = board.getSideToMove();
+                    int slot = chooser.getMove(board);
+                    long start = System.nanoTime();
+                    send(seats[side], request, session, slot, side, BinaryGameServer.OP_MOVE);
+                    receive(seats[side], response);
+                    if (game >= 0) latencies[measured++] = System.nanoTime() - start;
+                    if (response.get(7) != BinaryGameServer.CODE_OK) {
+                        throw new IOException("Move rejected in session " + session);
+                    }
+                    receive(seats[1 - side], response);
+                    board.makeMove(slot);
+                }
+            }
+        }
+        window[1] = System.nanoTime();
+        return Arrays.copyOf(latencies, measured);
+    }
+
+    private SocketChannel connect() throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        return channel;
+    }
+
+    private static void send(SocketChannel channel, ByteBuffer request, int session, int slot, int symbol, byte op)
+            throws IOException {
+        request.clear();
+        request.putInt(session).putShort((short) slot).put((byte) symbol).put(op).flip();
+        while (request.hasRemaining()) channel.write(request);
+    }
+
+    // Reads one response frame: the header, then as many snapshot bytes as it announces
+    private static void receive(SocketChannel channel, ByteBuffer response) throws IOException {
+        response.clear().limit(BinaryGameServer.HEADER_SIZE);
+        readFully(channel, response);
+        int cells = response.getShort(10);
+        response.limit(BinaryGameServer.HEADER_SIZE + cells);
+        readFully(channel, response);
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw new EOFException("Server closed the connection");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Optional arguments: host, port, connection pairs and games per pair.
+        // Without a host an in-process server is started.
+        String host = args.length > 0 && !args[0].isEmpty() ? args[0] : null;
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 4001;
+        int pairs = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int games = args.length > 3 ? Integer.parseInt(args[3]) : 20_000;
+
+        BinaryGameServer server = null;
+        if (host == null) {
+            server = new BinaryGameServer(0);
+            server.start();
+            host = "localhost";
+            port = server.getPort();
+        }
+
+        BinaryLoadGenerator generator = new BinaryLoadGenerator(new InetSocketAddress(host, port), pairs, games);
+        long[] latencies = generator.run();
+        double seconds = generator.getMeasuredNanos() / 1e9;
+
+        System.out.printf("%d moves in %.2f s: %.0f moves/sec%n", latencies.length, seconds, latencies.length / seconds);
+        System.out.printf("round trip p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us%n",
+            percentile(latencies, 0.50) / 1e3, percentile(latencies, 0.99) / 1e3,
+            percentile(latencies, 0.999) / 1e3, latencies[latencies.length - 1] / 1e3);
+        if (server != null) server.stop();
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+}
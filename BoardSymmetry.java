@@ -0,0 +1,82 @@
+// ----------- Board Symmetries (D4) --------------
+// The eight rotations and reflections of an N x N board as precomputed slot
+// permutations. Boards of up to 32 slots also get byte-wise lookup tables so
+// a whole occupancy mask is permuted with four table reads.
+class BoardSymmetry {
+    static final int COUNT = 8;
+    static final int MAX_MASK_CELLS = 32;
+
+    private static final BoardSymmetry[] CACHE = new BoardSymmetry[64];
+
+    final int size;
+    final int[][] permutation; // permutation[s][slot] is where symmetry s sends slot
+    final int[][] inverse;     // inverse[s][slot] undoes permutation[s]
+    private final int[][][] maskTables; // [symmetry][byte of the mask][byte value]
+
+    private BoardSymmetry(int size) {
+        this.size = size;
+        int cells = size * size;
+        permutation = new int[COUNT][cells];
+        inverse = new int[COUNT][cells];
+        for (int s = 0; s < COUNT; s++) {
+            for (int index = 0; index < cells; index++) {
+                int image = transform(s, index / size, index % size);
+                permutation[s][index] = image;
+                inverse[s][image] = index;
+            }
+        }
+
+        if (cells > MAX_MASK_CELLS) {
+            maskTables = null;
+            return;
+        }
+        maskTables = new int[COUNT][4][256];
+        for (int s = 0; s < COUNT; s++) {
+            for (int chunk = 0; chunk < 4; chunk++) {
+                for (int value = 0; value < 256; value++) {
+                    int mapped = 0;
+                    for (int bit = 0; bit < 8; bit++) {
+                        int index = chunk * 8 + bit;
+                        if ((value & (1 << bit)) != 0 && index < cells) {
+                            mapped |= 1 << permutation[s][index];
+                        }
+                    }
+                    maskTables[s][chunk][value] = mapped;
+                }
+            }
+        }
+    }
+
+    // Tables are immutable once built, so a racing duplicate build is harmless
+    static BoardSymmetry forSize(int size) {
+        if (size >= CACHE.length) return new BoardSymmetry(size);
+        BoardSymmetry symmetry = CACHE[size];
+        if (symmetry == null) {
+            symmetry = new BoardSymmetry(size);
+            CACHE[size] = symmetry;
+        }
+        return symmetry;
+    }
+
+    // Applies symmetry s to an occupancy mask of a board with at most 32 slots
+    int permuteMask(int s, int mask) {
+        int[][] tables = maskTables[s];
+        return tables[0][mask & 0xFF] | tables[1][(mask >>> 8) & 0xFF]
+            | tables[2][(mask >>> 16) & 0xFF] | tables[3][mask >>> 24];
+    }
+
+    // 0-3 rotate by quarter turns, 4-7 mirror and then rotate
+    private int transform(int s, int row, int col) {
+        int last = size - 1;
+        switch (s) {
+            case 0: return row * size + col;
+            case 1: return col * size + (last - row);
+            case 2: return (last - row) * size + (last - col);
+            case 3: return (last - col) * size + row;
+            case 4: return row * size + (last - col);
+            case 5: return col * size + row;
+            case 6: return (last - row) * size + col;
+            default: return (last - col) * size + (last - row);
+        }
+    }
+}
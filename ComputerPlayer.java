@@ -0,0 +1,412 @@
+import java.util.Arrays;
+
+// ----------- Alpha-beta minimax player --------------
+// Searches on the game's own board with makeMove/undoMove, so a move costs no copies.
+// Iterative deepening: each depth is searched in turn, and the transposition table and
+// history scores left by one iteration order the moves of the next. With a time budget
+// the search deepens until the budget runs out and plays the last completed depth's move,
+// or the first move it would have searched if not even depth 1 completes. The budget
+// starts when getMove is called, so it also covers the book, tablebase and threat search.
+// On boards with K >= 4 a threat-space search runs first and plays any forced win it finds;
+// with a time budget it may use half of it.
+// An opening book and an endgame tablebase, when set, answer the positions they cover
+// before either search runs.
+// Keeps per-board search buffers, so one instance should not be shared between threads.
+class ComputerPlayer extends Player {
+    static final int WIN_SCORE = 1 << 30; // reduced by the ply so quicker wins score higher
+    private static final int INFINITY = WIN_SCORE + 1;
+    private static final int MAX_EVAL = WIN_SCORE >> 1;
+    private static final int NEIGHBOUR_ONLY_CELLS = 16; // larger boards only try slots next to a mark
+    private static final int MATE_BOUND = WIN_SCORE - 4096; // scores beyond this are wins at some ply
+    private static final int DEFAULT_TABLE_SIZE = 1 << 16;
+    private static final int DEADLINE_CHECK_NODES = 64; // most nodes between clock reads, a power of two
+    private static final int DEADLINE_CHECK_WINDOWS = 1024; // leaf window scans between clock reads
+    private static final int THREAT_SEARCH_MIN_WIN_LENGTH = 4; // shorter lines are searched fully anyway
+    private static final int THREAT_SEARCH_SHARE = 2; // a budgeted threat search gets 1/SHARE of the budget
+
+    private final int maxDepth; // 0 picks a depth from the board size
+    private final TranspositionTable table;
+    private final ThreatSearch threats = new ThreatSearch();
+
+    // Tables for the current board dimensions, rebuilt when they change
+    private int size = -1;
+    private int winLength = -1;
+    private BoardSymmetry symmetry;
+    private int[] order;        // slots by how many winning windows cross them, centre first
+    private int[][] neighbours; // slots touching each slot
+    private int[] windowStart;  // every K-long window as a start slot and a step
+    private int[] windowStep;
+    private int[] windowWeight; // score of a window holding only one side's marks, by count
+    private int[][] moveBuffers = new int[0][];
+    private int deadlineCheckMask; // nodes between clock reads minus one; fewer where leaves cost more
+
+    private int[] history = new int[0]; // cutoffs per side and slot, weighted by depth squared
+
+    private long nodes;
+    private int rootBestMove;
+    private long budgetNanos; // 0 searches to the full depth
+    private long deadline;
+    private boolean aborted;
+    private int depthReached;
+    private long elapsedNanos;
+
+    private OpeningBook book;
+    private Tablebase tablebase;
+    private long random = System.nanoTime() | 1; // xorshift64* state for book choices
+
+    public ComputerPlayer(String name, String symbol) {
+        this(name, symbol, 0);
+    }
+
+    public ComputerPlayer(String name, String symbol, int maxDepth) {
+        this(name, symbol, maxDepth, DEFAULT_TABLE_SIZE);
+    }
+
+    public ComputerPlayer(String name, String symbol, int maxDepth, int tableSize) {
+        super(name, symbol);
+        this.maxDepth = maxDepth;
+        this.table = new TranspositionTable(tableSize);
+    }
+
+    @Override
+    public int getMove(Board board) {
+        long start = System.nanoTime(); // the budget covers the book, tablebase and threat search too
+        deadline = start + budgetNanos;
+        nodes = 0;
+        depthReached = 0;
+        if (book != null) {
+            int move = book.move(board, nextRandom());
+            if (move >= 0) return finish(start, move);
+        }
+        if (tablebase != null) {
+            int move = tablebase.bestMove(board);
+            if (move >= 0) return finish(start, move);
+        }
+        if (board.getWinLength() >= THREAT_SEARCH_MIN_WIN_LENGTH) {
+            int win = budgetNanos > 0 ? threats.findWin(board, start + budgetNanos / THREAT_SEARCH_SHARE)
+                : threats.findWin(board);
+            if (win >= 0) return finish(start, win);
+        }
+        prepare(board);
+        int remaining = board.getCellCount() - board.getMoveCount();
+        int depth;
+        if (maxDepth > 0) depth = Math.min(maxDepth, remaining);
+        else if (budgetNanos > 0) depth = remaining;
+        else depth = Math.min(defaultDepth(board.getCellCount()), remaining);
+        depth = Math.min(depth, TranspositionTable.MAX_DEPTH); // deeper results would wrap in the table
+        ensureBuffers(depth, board.getCellCount());
+        for (int i = 0; i < history.length; i++) history[i] >>= 1; // older cutoffs count for less
+
+        table.newSearch();
+        aborted = false;
+        int bestMove = firstMove(board); // played if even the first iteration runs out of time
+        for (int iteration = 1; iteration <= depth; iteration++) {
+            int score = negamax(board, iteration, 0, -INFINITY, INFINITY);
+            if (aborted) break;
+            bestMove = rootBestMove;
+            depthReached = iteration;
+            if (Math.abs(score) > MATE_BOUND) break; // a forced result does not change with depth
+        }
+        return finish(start, bestMove);
+    }
+
+    private int finish(long start, int move) {
+        elapsedNanos = System.nanoTime() - start;
+        return move;
+    }
+
+    /**
+     * Limits each getMove to about nanos, after which it returns the best move
+     * of the deepest completed iteration. 0 removes the limit.
+     * With no maximum depth set, a budgeted search may deepen to the end of the game.
+     */
+    public void setTimeBudget(long nanos) {
+        this.budgetNanos = nanos;
+    }
+
+    // Book consulted before searching; null searches every move
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    // Tablebase consulted before searching, for positions with few empty slots; null to always search
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    // Forgets cached search results, e.g. so benchmarks measure a cold search
+    public void clearTable() {
+        table.clear();
+    }
+
+    // Positions visited by the last getMove call
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    // Deepest iteration the last getMove call completed
+    public int getDepthReached() {
+        return depthReached;
+    }
+
+    public double getNodesPerSecond() {
+        return nodes * 1e9 / Math.max(elapsedNanos, 1);
+    }
+
+    // Negamax over a position that is still in progress, scored for the side to move
+    private int negamax(Board board, int depth, int ply, int alpha, int beta) {
+        if (aborted) return 0;
+        if ((++nodes & deadlineCheckMask) == 0 && budgetNanos > 0 && System.nanoTime() >= deadline) {
+            aborted = true;
+            return 0;
+        }
+        // Symmetric positions share one entry, with moves stored in the canonical orientation
+        long key = board.canonicalKey();
+        int orientation = board.canonicalSymmetry();
+        long entry = table.probe(key);
+        int tableMove = TranspositionTable.NO_MOVE;
+        if (entry != 0) {
+            tableMove = TranspositionTable.moveOf(entry);
+            if (tableMove != TranspositionTable.NO_MOVE) tableMove = symmetry.inverse[orientation][tableMove];
+            if (ply > 0 && TranspositionTable.depthOf(entry) >= depth) {
+                int score = fromTable(TranspositionTable.scoreOf(entry), ply);
+                int bound = TranspositionTable.boundOf(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+        if (depth == 0) {
+            int score = evaluate(board);
+            table.store(key, score, TranspositionTable.NO_MOVE, 0, TranspositionTable.EXACT);
+            return score;
+        }
+
+        int side = board.getSideToMove();
+        int[] moves = moveBuffers[ply];
+        int count = generateMoves(board, moves);
+        sortByHistory(moves, count, side * board.getCellCount());
+        promote(moves, count, tableMove);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = moves[0];
+        for (int i = 0; i < count; i++) {
+            int score = scoreMove(board, moves[i], side, depth, ply, alpha, beta);
+            if (aborted) return 0; // the partial result must not reach the table
+            if (score > best) {
+                best = score;
+                bestMove = moves[i];
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        history[side * board.getCellCount() + bestMove] += depth * depth;
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = best <= originalAlpha ? TranspositionTable.UPPER
+            : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        table.store(key, toTable(best, ply), symmetry.permutation[orientation][bestMove], depth, bound);
+        if (ply == 0) rootBestMove = bestMove;
+        return best;
+    }
+
+    private int scoreMove(Board board, int move, int side, int depth, int ply, int alpha, int beta) {
+        int status = board.makeMove(move);
+        int score;
+        if (status == side) {
+            score = WIN_SCORE - ply - 1;
+        } else if (status == Board.DRAW) {
+            score = 0;
+        } else {
+            score = -negamax(board, depth - 1, ply + 1, -beta, -alpha);
+        }
+        board.undoMove(move);
+        return score;
+    }
+
+    // Move the search would try first at the root: the cached best move, else by history and order
+    private int firstMove(Board board) {
+        int[] moves = moveBuffers[0];
+        int count = generateMoves(board, moves);
+        if (count == 0) return -1;
+        sortByHistory(moves, count, board.getSideToMove() * board.getCellCount());
+        long entry = table.probe(board.canonicalKey());
+        int tableMove = entry == 0 ? TranspositionTable.NO_MOVE : TranspositionTable.moveOf(entry);
+        if (tableMove != TranspositionTable.NO_MOVE) {
+            tableMove = symmetry.inverse[board.canonicalSymmetry()][tableMove];
+            promote(moves, count, tableMove);
+        }
+        return moves[0];
+    }
+
+    // Fills moves with the empty slots in search order and returns how many there are
+    private int generateMoves(Board board, int[] moves) {
+        boolean nearMarksOnly = board.getCellCount() > NEIGHBOUR_ONLY_CELLS && board.getMoveCount() > 0;
+        int count = 0;
+        for (int index : order) {
+            if (board.isSlotAvailable(index) && (!nearMarksOnly || touchesMark(board, index))) {
+                moves[count++] = index;
+            }
+        }
+        return count;
+    }
+
+    // Stable insertion sort by history score, so slots that caused cutoffs are tried early
+    private void sortByHistory(int[] moves, int count, int offset) {
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            int score = history[offset + move];
+            int j = i - 1;
+            while (j >= 0 && history[offset + moves[j]] < score) {
+                moves[j + 1] = moves[j];
+                j--;
+            }
+            moves[j + 1] = move;
+        }
+    }
+
+    // Moves the cached best move, if generated, to the front keeping the rest in order
+    private static void promote(int[] moves, int count, int move) {
+        if (move == TranspositionTable.NO_MOVE) return;
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+
+    // Win scores depend on the ply they were found at, so the table keeps them relative to the entry
+    private static int toTable(int score, int ply) {
+        if (score > MATE_BOUND) return score + ply;
+        if (score < -MATE_BOUND) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score > MATE_BOUND) return score - ply;
+        if (score < -MATE_BOUND) return score + ply;
+        return score;
+    }
+
+    private boolean touchesMark(Board board, int index) {
+        for (int neighbour : neighbours[index]) {
+            if (!board.isSlotAvailable(neighbour)) return true;
+        }
+        return false;
+    }
+
+    // Static score for the side to move: open windows of its own minus the opponent's
+    private int evaluate(Board board) {
+        int side = board.getSideToMove();
+        long score = 0;
+        for (int w = 0; w < windowStart.length; w++) {
+            int own = 0;
+            int other = 0;
+            for (int i = 0, index = windowStart[w]; i < winLength; i++, index += windowStep[w]) {
+                int owner = board.getOwner(index);
+                if (owner == side) own++;
+                else if (owner >= 0) other++;
+            }
+            if (other == 0) score += windowWeight[own];
+            else if (own == 0) score -= windowWeight[other];
+        }
+        return (int) Math.max(-MAX_EVAL, Math.min(MAX_EVAL, score));
+    }
+
+    private long nextRandom() {
+        random ^= random >>> 12;
+        random ^= random << 25;
+        random ^= random >>> 27;
+        return random * 0x2545F4914F6CDD1DL;
+    }
+
+    private static int defaultDepth(int cellCount) {
+        if (cellCount <= 9) return cellCount;
+        if (cellCount <= 16) return 6;
+        if (cellCount <= 49) return 4;
+        return 2;
+    }
+
+    private void ensureBuffers(int depth, int cellCount) {
+        if (history.length != cellCount * 2) history = new int[cellCount * 2];
+        if (moveBuffers.length < depth + 1 || (moveBuffers.length > 0 && moveBuffers[0].length < cellCount)) {
+            moveBuffers = new int[depth + 1][cellCount];
+        }
+    }
+
+    private void prepare(Board board) {
+        if (board.getSize() == size && board.getWinLength() == winLength) return;
+        size = board.getSize();
+        winLength = board.getWinLength();
+        symmetry = BoardSymmetry.forSize(size);
+        int cells = size * size;
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+
+        // Count the windows through each slot and collect the windows themselves
+        int[] crossings = new int[cells];
+        int[] starts = new int[cells * 4];
+        int[] steps = new int[cells * 4];
+        int windows = 0;
+        for (int[] dir : directions) {
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    int endRow = row + dir[0] * (winLength - 1);
+                    int endCol = col + dir[1] * (winLength - 1);
+                    if (endRow >= size || endCol < 0 || endCol >= size) continue;
+                    starts[windows] = row * size + col;
+                    steps[windows] = dir[0] * size + dir[1];
+                    for (int i = 0; i < winLength; i++) {
+                        crossings[starts[windows] + i * steps[windows]]++;
+                    }
+                    windows++;
+                }
+            }
+        }
+        windowStart = Arrays.copyOf(starts, windows);
+        windowStep = Arrays.copyOf(steps, windows);
+        deadlineCheckMask = Math.min(DEADLINE_CHECK_NODES, Integer.highestOneBit(Math.max(1,
+            DEADLINE_CHECK_WINDOWS / Math.max(windows, 1)))) - 1;
+
+        windowWeight = new int[winLength + 1];
+        for (int count = 1; count <= winLength; count++) {
+            windowWeight[count] = 1 << Math.min(3 * (count - 1), 20);
+        }
+
+        // Most crossed slots first, ties broken by distance to the centre
+        Integer[] sorted = new Integer[cells];
+        for (int i = 0; i < cells; i++) sorted[i] = i;
+        double centre = (size - 1) / 2.0;
+        Arrays.sort(sorted, (a, b) -> {
+            if (crossings[a] != crossings[b]) return crossings[b] - crossings[a];
+            double da = Math.abs(a / size - centre) + Math.abs(a % size - centre);
+            double db = Math.abs(b / size - centre) + Math.abs(b % size - centre);
+            return Double.compare(da, db);
+        });
+        order = new int[cells];
+        for (int i = 0; i < cells; i++) order[i] = sorted[i];
+
+        neighbours = new int[cells][];
+        for (int index = 0; index < cells; index++) {
+            int[] found = new int[8];
+            int count = 0;
+            for (int dr = -1; dr <= 1; dr++) {
+                for (int dc = -1; dc <= 1; dc++) {
+                    int r = index / size + dr;
+                    int c = index % size + dc;
+                    if ((dr != 0 || dc != 0) && r >= 0 && r < size && c >= 0 && c < size) {
+                        found[count++] = r * size + c;
+                    }
+                }
+            }
+            neighbours[index] = Arrays.copyOf(found, count);
+        }
+    }
+}
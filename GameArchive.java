@@ -0,0 +1,433 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// ----------- Memory-mapped game archive --------------
+// Completed games of one board size stored as fixed-size records in a memory-mapped file,
+// with an index from canonical position key to every game that passed through it.
+//
+// File layout: a 64-byte header (magic, version, size, winLength, record size, game count)
+// followed by records of: short move count | byte status | byte unused | slots, one byte
+// each (two bytes on boards over 256 slots), padded to a multiple of 8 bytes.
+//
+// One thread appends without locking: it writes the record and then publishes the new
+// count through a volatile field, so readers on other threads only ever see complete
+// records. Reads use absolute gets or slices of the mapping, never copies.
+//
+// The position index is kept in two more mapped files next to the archive, updated by
+// append before it publishes the game: <file>.keys, an open-addressed table from position
+// key to the newest posting for it, and <file>.postings, (game, next posting) pairs that
+// chain every game through a position, newest first. A lookup probes the table and walks
+// one chain, so it never scans the archive. Chain heads are written with release and read
+// with acquire, so lookups take no lock either. Index files that are missing or out of
+// step with the archive, e.g. after a crash mid-append, are rebuilt when it is opened.
+class GameArchive implements Closeable {
+    private static final int MAGIC = 0x54545441; // "TTTA"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int COUNT_OFFSET = 24;
+    private static final int SEGMENT_TARGET = 1 << 26; // bytes mapped at a time
+    private static final int RECORD_SIZE_OFFSET = 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final int size;
+    private final int winLength;
+    private final int slotBytes;
+    private final int recordSize;
+    private final int recordsPerSegment;
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private volatile long committed;
+
+    private PositionIndex index;
+    private final Board indexBoard; // replays appended games for the index; writer only
+
+    private GameArchive(FileChannel channel, int size, int winLength) throws IOException {
+        this.channel = channel;
+        this.size = size;
+        this.winLength = winLength;
+        int cells = size * size;
+        this.slotBytes = cells > 256 ? 2 : 1;
+        this.recordSize = (4 + cells * slotBytes + 7) & ~7;
+        this.recordsPerSegment = Math.max(1, SEGMENT_TARGET / recordSize);
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        this.indexBoard = new Board(size, winLength);
+    }
+
+    // Opens an archive, creating it for the given board if the file is new
+    static GameArchive open(Path file, int size, int winLength) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        boolean created = channel.size() == 0;
+        GameArchive archive = new GameArchive(channel, size, winLength);
+        ByteBuffer header = archive.header;
+        if (created) {
+            header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, size).putInt(12, winLength)
+                .putInt(RECORD_SIZE_OFFSET, archive.recordSize).putLong(COUNT_OFFSET, 0);
+        } else if (header.getInt(0) != MAGIC || header.getInt(8) != size || header.getInt(12) != winLength) {
+            channel.close();
+            throw new IOException(file + " is not an archive of " + size + "x" + size + " games with "
+                + winLength + " in a row");
+        } else if (header.getInt(4) != VERSION || header.getInt(RECORD_SIZE_OFFSET) != archive.recordSize) {
+            channel.close();
+            throw new IOException(file + " has version " + header.getInt(4) + " and "
+                + header.getInt(RECORD_SIZE_OFFSET) + "-byte records; expected version " + VERSION + " and "
+                + archive.recordSize);
+        } else if (header.getLong(COUNT_OFFSET) < 0
+            || channel.size() < HEADER_SIZE + header.getLong(COUNT_OFFSET) * archive.recordSize) {
+            channel.close();
+            throw new IOException(file + " is truncated");
+        }
+        archive.committed = header.getLong(COUNT_OFFSET);
+        archive.ensureMapped(archive.committed);
+        archive.index = PositionIndex.open(file, archive.committed);
+        for (long game = archive.index.indexedGames; game < archive.committed; game++) {
+            archive.indexGame(game);
+        }
+        return archive;
+    }
+
+    // Appends a game and returns its number; only one thread may append
+    public long append(int[] slots, int moveCount, int status) throws IOException {
+        int cells = size * size;
+        if (moveCount < 0 || moveCount > cells || moveCount > slots.length) {
+            throw new IllegalArgumentException("Bad move count " + moveCount);
+        }
+        if (status < Board.IN_PROGRESS || status > Board.DRAW) throw new IllegalArgumentException("Bad status " + status);
+        for (int ply = 0; ply < moveCount; ply++) {
+            if (slots[ply] < 0 || slots[ply] >= cells) throw new IllegalArgumentException("Bad slot " + slots[ply]);
+        }
+        long game = committed;
+        ensureMapped(game + 1);
+        MappedByteBuffer segment = segments[(int) (game / recordsPerSegment)];
+        int offset = (int) (game % recordsPerSegment) * recordSize;
+        segment.putShort(offset, (short) moveCount);
+        segment.put(offset + 2, (byte) status);
+        for (int ply = 0; ply < moveCount; ply++) {
+            if (slotBytes == 1) segment.put(offset + 4 + ply, (byte) slots[ply]);
+            else segment.putShort(offset + 4 + ply * 2, (short) slots[ply]);
+        }
+        indexGame(game);
+        header.putLong(COUNT_OFFSET, game + 1);
+        committed = game + 1; // publishes the record to readers
+        return game;
+    }
+
+    // Appends a game recorded by MoveLog
+    public long append(byte[] record) throws IOException {
+        if (record[1] != size || record[2] != winLength) {
+            throw new IllegalArgumentException("Record is for a " + record[1] + "x" + record[1] + " board");
+        }
+        int[] moves = MoveLog.movesOf(record);
+        return append(moves, moves.length, MoveLog.statusOf(record));
+    }
+
+    public long getGameCount() {
+        return committed;
+    }
+
+    public int getMoveCount(long game) {
+        return segment(game).getShort(offset(game)) & 0xFFFF;
+    }
+
+    public int getStatus(long game) {
+        return segment(game).get(offset(game) + 2);
+    }
+
+    public int getMove(long game, int ply) {
+        MappedByteBuffer segment = segment(game);
+        int offset = offset(game) + 4;
+        return slotBytes == 1 ? segment.get(offset + ply) & 0xFF : segment.getShort(offset + ply * 2) & 0xFFFF;
+    }
+
+    // Read-only view of a record inside the mapping
+    public ByteBuffer record(long game) {
+        return segment(game).slice(offset(game), recordSize).asReadOnlyBuffer();
+    }
+
+    /**
+     * Numbers of all archived games that passed through position or any of
+     * its rotations and reflections, newest first.
+     */
+    public long[] gamesThrough(Board position) {
+        if (position.getSize() != size || position.getWinLength() != winLength) return new long[0];
+        return index.lookup(position.canonicalKey(), committed);
+    }
+
+    public void force() {
+        for (MappedByteBuffer segment : segments) segment.force();
+        header.force();
+        index.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+        index.close();
+    }
+
+    // Adds every position of a written but not yet published game to the index
+    private void indexGame(long game) throws IOException {
+        MappedByteBuffer segment = segments[(int) (game / recordsPerSegment)];
+        int offset = (int) (game % recordsPerSegment) * recordSize;
+        int moves = segment.getShort(offset) & 0xFFFF;
+        indexBoard.reset();
+        index.startGame(game);
+        for (int ply = 0; ply < moves; ply++) {
+            int slot = slotBytes == 1 ? segment.get(offset + 4 + ply) & 0xFF
+                : segment.getShort(offset + 4 + ply * 2) & 0xFFFF;
+            indexBoard.makeMove(slot);
+            index.add(indexBoard.canonicalKey(), game);
+        }
+        index.setIndexedGames(game + 1);
+    }
+
+    private MappedByteBuffer segment(long game) {
+        if (game < 0 || game >= committed) throw new IndexOutOfBoundsException("No game " + game);
+        return segments[(int) (game / recordsPerSegment)];
+    }
+
+    private int offset(long game) {
+        return (int) (game % recordsPerSegment) * recordSize;
+    }
+
+    // Maps enough segments to hold games records; mapping past the end grows the file
+    private void ensureMapped(long games) throws IOException {
+        int needed = (int) ((games + recordsPerSegment - 1) / recordsPerSegment);
+        MappedByteBuffer[] current = segments;
+        if (needed <= current.length) return;
+        MappedByteBuffer[] grown = Arrays.copyOf(current, needed);
+        long segmentBytes = (long) recordsPerSegment * recordSize;
+        for (int i = current.length; i < needed; i++) {
+            grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + i * segmentBytes, segmentBytes);
+        }
+        segments = grown;
+    }
+
+    // Open-addressed table from position key to a chain of postings, both in mapped files.
+    // Keys file, in longs: magic | capacity | used | indexed games | postings | game being
+    // indexed + 1, or 0 between games | 2 unused |
+    // capacity x (key, first posting + 1), a zero head marking an empty slot.
+    // Postings file: (game, next posting + 1) pairs, 0 ending a chain.
+    private static final class PositionIndex implements Closeable {
+        private static final long MAGIC = 0x5454544B_00000001L; // "TTTK", version 1
+        private static final int HEADER_LONGS = 8;
+        private static final long INITIAL_CAPACITY = 1 << 12;
+
+        private final Path keysPath;
+        private final Path postingsPath;
+        private volatile LongFile keys;  // replaced whole when the table grows
+        private final LongFile postings;
+        private long capacity;
+        private long used;
+        private long postingCount;
+        long indexedGames;
+
+        private PositionIndex(Path keysPath, Path postingsPath, LongFile keys, LongFile postings) {
+            this.keysPath = keysPath;
+            this.postingsPath = postingsPath;
+            this.keys = keys;
+            this.postings = postings;
+        }
+
+        // Opens the index files of archive, starting them afresh unless they cover at most games
+        static PositionIndex open(Path archive, long games) throws IOException {
+            Path keysPath = archive.resolveSibling(archive.getFileName() + ".keys");
+            Path postingsPath = archive.resolveSibling(archive.getFileName() + ".postings");
+            LongFile keys = LongFile.open(keysPath);
+            LongFile postings = LongFile.open(postingsPath);
+            PositionIndex index = new PositionIndex(keysPath, postingsPath, keys, postings);
+            if (keys.get(0) == MAGIC && keys.get(3) <= games && keys.get(5) == 0) {
+                index.capacity = keys.get(1);
+                index.used = keys.get(2);
+                index.indexedGames = keys.get(3);
+                index.postingCount = keys.get(4);
+            } else {
+                index.capacity = INITIAL_CAPACITY;
+                keys.clear(HEADER_LONGS + 2 * INITIAL_CAPACITY);
+                keys.put(0, MAGIC);
+                keys.put(1, INITIAL_CAPACITY);
+                index.writeCounts();
+            }
+            return index;
+        }
+
+        // Writer only; the posting and a new slot's key are written before the head that reaches them
+        void add(long key, long game) throws IOException {
+            if ((used + 1) * 2 > capacity) grow();
+            long slot = find(keys, capacity, key);
+            long head = keys.getAcquire(HEADER_LONGS + 2 * slot + 1);
+            if (head == 0) {
+                keys.put(HEADER_LONGS + 2 * slot, key);
+                used++;
+            }
+            postings.ensureMapped(2 * postingCount + 2);
+            postings.put(2 * postingCount, game);
+            postings.put(2 * postingCount + 1, head);
+            keys.setRelease(HEADER_LONGS + 2 * slot + 1, ++postingCount);
+        }
+
+        // Marks the index as mid-game, so a crash before setIndexedGames rebuilds it on open
+        void startGame(long game) {
+            keys.put(5, game + 1);
+        }
+
+        void setIndexedGames(long games) {
+            indexedGames = games;
+            writeCounts();
+            keys.put(5, 0);
+        }
+
+        // Games through the position with key, skipping any not yet published below limit
+        long[] lookup(long key, long limit) {
+            LongFile table = keys;
+            long tableCapacity = table.get(1);
+            long head = table.getAcquire(HEADER_LONGS + 2 * find(table, tableCapacity, key) + 1);
+            long[] games = new long[16];
+            int count = 0;
+            for (long posting = head; posting != 0; posting = postings.get(2 * (posting - 1) + 1)) {
+                long game = postings.get(2 * (posting - 1));
+                if (game >= limit) continue;
+                if (count == games.length) games = Arrays.copyOf(games, count * 2);
+                games[count++] = game;
+            }
+            return Arrays.copyOf(games, count);
+        }
+
+        void force() {
+            keys.force();
+            postings.force();
+        }
+
+        @Override
+        public void close() throws IOException {
+            keys.close();
+            postings.close();
+        }
+
+        private void writeCounts() {
+            keys.put(2, used);
+            keys.put(3, indexedGames);
+            keys.put(4, postingCount);
+        }
+
+        // Slot holding key, or the empty slot where it would go
+        private static long find(LongFile table, long capacity, long key) {
+            long mask = capacity - 1;
+            long mixed = key * 0x9E3779B97F4A7C15L;
+            long slot = (mixed ^ (mixed >>> 32)) & mask;
+            while (true) {
+                long head = table.getAcquire(HEADER_LONGS + 2 * slot + 1);
+                if (head == 0 || table.get(HEADER_LONGS + 2 * slot) == key) return slot;
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        // Builds a table twice the size beside the current one, then swaps it in
+        private void grow() throws IOException {
+            Path next = keysPath.resolveSibling(keysPath.getFileName() + ".grow");
+            Files.deleteIfExists(next);
+            LongFile grown = LongFile.open(next);
+            long grownCapacity = capacity * 2;
+            grown.clear(HEADER_LONGS + 2 * grownCapacity);
+            LongFile old = keys;
+            for (long slot = 0; slot < capacity; slot++) {
+                long head = old.get(HEADER_LONGS + 2 * slot + 1);
+                if (head == 0) continue;
+                long key = old.get(HEADER_LONGS + 2 * slot);
+                long target = find(grown, grownCapacity, key);
+                grown.put(HEADER_LONGS + 2 * target, key);
+                grown.put(HEADER_LONGS + 2 * target + 1, head);
+            }
+            grown.put(0, MAGIC);
+            grown.put(1, grownCapacity);
+            grown.put(5, old.get(5));
+            capacity = grownCapacity;
+            keys = grown; // readers pick up the new table on their next lookup
+            writeCounts();
+            grown.force();
+            Files.move(next, keysPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            old.close(); // its mapping stays readable for lookups already under way
+        }
+    }
+
+    // File of longs mapped in fixed-size segments; mapping past the end grows the file
+    private static final class LongFile implements Closeable {
+        private static final int SEGMENT_SHIFT = 22; // 32 MB per mapping
+        private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.BIG_ENDIAN);
+
+        private final FileChannel channel;
+        private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+        private LongFile(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        static LongFile open(Path path) throws IOException {
+            LongFile file = new LongFile(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE));
+            file.ensureMapped(Math.max(1, file.channel.size() / 8));
+            return file;
+        }
+
+        long get(long index) {
+            return segments[(int) (index >>> SEGMENT_SHIFT)].getLong(offset(index));
+        }
+
+        long getAcquire(long index) {
+            return (long) LONGS.getAcquire((ByteBuffer) segments[(int) (index >>> SEGMENT_SHIFT)], offset(index));
+        }
+
+        void put(long index, long value) {
+            segments[(int) (index >>> SEGMENT_SHIFT)].putLong(offset(index), value);
+        }
+
+        void setRelease(long index, long value) {
+            LONGS.setRelease((ByteBuffer) segments[(int) (index >>> SEGMENT_SHIFT)], offset(index), value);
+        }
+
+        // Empties the file and maps the first longs, which read as zero; only before any lookup
+        void clear(long longs) throws IOException {
+            segments = new MappedByteBuffer[0];
+            channel.truncate(0);
+            ensureMapped(longs);
+        }
+
+        void force() {
+            for (MappedByteBuffer segment : segments) segment.force();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private static int offset(long index) {
+            return (int) (index & ((1 << SEGMENT_SHIFT) - 1)) << 3;
+        }
+
+        private void ensureMapped(long longs) throws IOException {
+            int needed = (int) ((longs + (1 << SEGMENT_SHIFT) - 1) >>> SEGMENT_SHIFT);
+            MappedByteBuffer[] current = segments;
+            if (needed <= current.length) return;
+            MappedByteBuffer[] grown = Arrays.copyOf(current, needed);
+            long segmentBytes = 8L << SEGMENT_SHIFT;
+            for (int i = current.length; i < needed; i++) {
+                grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * segmentBytes, segmentBytes);
+            }
+            segments = grown;
+        }
+    }
+}
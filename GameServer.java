@@ -0,0 +1,297 @@
+import java.io.*;
+import java.net.*;
+import java.util.concurrent.*;
+
+// ----------- TCP game server --------------
+// Hosts many Game sessions over a line-based protocol, one thread per connection.
+// On JDK 21+ those are virtual threads, so idle connections cost a few KB each;
+// older JDKs fall back to platform threads.
+//
+//   JOIN <session> [size winLength]   create or join a session, reply OK <session> <X|O>
+//   MOVE <slot>                       play slot 1..N*N, both players receive STATE
+//   STATE                             reply STATE <session> <X|O|-> <cells, '.' when empty>
+//   QUIT                              leave; the opponent receives OVER ABANDONED
+//
+// Games end with OVER <X|O|DRAW> sent to both players. Errors are ERR <reason>.
+public class GameServer {
+    static final int MAX_SIZE = 19; // same cap as BinaryGameServer
+
+    private final int port;
+    private final int idleTimeoutMillis;
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ExecutorService executor = newConnectionExecutor();
+    private volatile ServerSocket serverSocket;
+
+    public GameServer(int port, int idleTimeoutMillis) {
+        this.port = port;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    // Binds the port and accepts connections on a background thread
+    public void start() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port), 1024);
+        Thread acceptor = new Thread(this::acceptLoop, "game-server-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public void stop() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+    // Actual port, useful when constructed with port 0
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                // closed by stop(), or a failed accept that the next iteration retries
+            } catch (RejectedExecutionException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        Connection connection = null;
+        try (socket) {
+            socket.setSoTimeout(idleTimeoutMillis);
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            connection = new Connection(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream())));
+            try {
+                String line;
+                while (!connection.quit && (line = in.readLine()) != null) {
+                    handle(connection, line.trim());
+                }
+            } catch (SocketTimeoutException e) {
+                connection.send("ERR idle timeout");
+            }
+        } catch (IOException e) {
+            // connection dropped
+        } finally {
+            if (connection != null) leave(connection);
+        }
+    }
+
+    private void handle(Connection connection, String line) {
+        String[] parts = line.split("\\s+");
+        switch (parts[0].toUpperCase()) {
+            case "JOIN":
+                join(connection, parts);
+                break;
+            case "MOVE":
+                move(connection, parts);
+                break;
+            case "STATE": {
+                Session session = connection.session;
+                if (session == null) connection.send("ERR not in a session");
+                else connection.send(session.describe());
+                break;
+            }
+            case "QUIT":
+                connection.quit = true;
+                break;
+            case "":
+                break;
+            default:
+                connection.send("ERR unknown command " + parts[0]);
+        }
+    }
+
+    private void join(Connection connection, String[] parts) {
+        if (connection.session != null) {
+            connection.send("ERR already in session " + connection.session.id);
+            return;
+        }
+        if (parts.length < 2) {
+            connection.send("ERR usage: JOIN <session> [size winLength]");
+            return;
+        }
+        int size;
+        int winLength;
+        try {
+            size = parts.length > 2 ? Integer.parseInt(parts[2]) : 3;
+            winLength = parts.length > 3 ? Integer.parseInt(parts[3]) : Math.min(size, 5);
+        } catch (NumberFormatException e) {
+            connection.send("ERR size and winLength must be numbers");
+            return;
+        }
+        if (size < 1 || size > MAX_SIZE) {
+            connection.send("ERR bad size");
+            return;
+        }
+        if (winLength < 1 || winLength > size) {
+            connection.send("ERR bad winLength");
+            return;
+        }
+
+        Session session = sessions.computeIfAbsent(parts[1], id -> new Session(id, size, winLength));
+        synchronized (session) {
+            if (sessions.get(session.id) != session) {
+                connection.send("ERR session " + session.id + " has just ended");
+                return;
+            }
+            int seat = session.seat(connection);
+            if (seat < 0) {
+                connection.send("ERR session " + session.id + " is full");
+                return;
+            }
+            connection.session = session;
+            connection.seat = seat;
+            connection.send("OK " + session.id + " " + Session.SYMBOLS[seat]);
+            if (session.isFull()) session.broadcast(session.describe());
+        }
+    }
+
+    private void move(Connection connection, String[] parts) {
+        Session session = connection.session;
+        if (session == null) {
+            connection.send("ERR not in a session");
+            return;
+        }
+        int slot;
+        try {
+            slot = Integer.parseInt(parts.length > 1 ? parts[1] : "") - 1;
+        } catch (NumberFormatException e) {
+            connection.send("ERR usage: MOVE <slot>");
+            return;
+        }
+        synchronized (session) {
+            if (!session.isFull()) {
+                connection.send("ERR waiting for an opponent");
+                return;
+            }
+            int status = session.game.submitMove(session.players[connection.seat], slot);
+            if (status == Game.MOVE_REJECTED) {
+                connection.send("ERR illegal move");
+                return;
+            }
+            session.broadcast(session.describe());
+            if (status != Board.IN_PROGRESS) {
+                session.broadcast("OVER " + (status == Board.DRAW ? "DRAW" : Session.SYMBOLS[status]));
+                sessions.remove(session.id, session);
+                session.release();
+            }
+        }
+    }
+
+    private void leave(Connection connection) {
+        Session session = connection.session;
+        if (session == null) return;
+        synchronized (session) {
+            session.seats[connection.seat] = null;
+            connection.session = null;
+            if (sessions.remove(session.id, session)) {
+                session.broadcast("OVER ABANDONED");
+            }
+            session.release();
+        }
+    }
+
+    static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private static final class Connection {
+        private final BufferedWriter out;
+        volatile Session session; // cleared by whichever thread ends the game
+        int seat;
+        volatile boolean quit;
+
+        Connection(BufferedWriter out) {
+            this.out = out;
+        }
+
+        // Messages to one player can come from either player's thread
+        synchronized void send(String message) {
+            try {
+                out.write(message);
+                out.newLine();
+                out.flush();
+            } catch (IOException e) {
+                quit = true;
+            }
+        }
+    }
+
+    private static final class Session {
+        static final String[] SYMBOLS = {"X", "O"};
+
+        final String id;
+        final RemotePlayer[] players = {new RemotePlayer("Player 1", "X"), new RemotePlayer("Player 2", "O")};
+        final Connection[] seats = new Connection[2];
+        final Game game;
+
+        Session(String id, int size, int winLength) {
+            this.id = id;
+            this.game = new Game(players[0], players[1], size, winLength);
+            game.setVerbose(false);
+        }
+
+        int seat(Connection connection) {
+            for (int i = 0; i < seats.length; i++) {
+                if (seats[i] == null) {
+                    seats[i] = connection;
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // Frees the seated players to join another session once this one has ended
+        void release() {
+            for (Connection seat : seats) {
+                if (seat != null && seat.session == this) seat.session = null;
+            }
+        }
+
+        boolean isFull() {
+            return seats[0] != null && seats[1] != null;
+        }
+
+        void broadcast(String message) {
+            for (Connection seat : seats) {
+                if (seat != null) seat.send(message);
+            }
+        }
+
+        String describe() {
+            Board board = game.getBoard();
+            StringBuilder cells = new StringBuilder(board.getCellCount());
+            for (int i = 0; i < board.getCellCount(); i++) {
+                int owner = board.getOwner(i);
+                cells.append(owner < 0 ? '.' : SYMBOLS[owner].charAt(0));
+            }
+            String turn = game.isFinished() ? "-" : SYMBOLS[board.getSideToMove()];
+            return "STATE " + id + " " + turn + " " + cells;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // Optional arguments: port and idle timeout in seconds
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+        int idleSeconds = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+
+        GameServer server = new GameServer(port, idleSeconds * 1000);
+        server.start();
+        System.out.println("Tic Tac Toe server listening on port " + server.getPort());
+        Thread.currentThread().join();
+    }
+}
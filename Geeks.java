@@ -1,53 +1,77 @@
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 // ----------- State Design Pattern Interfaces & Classes --------------
+// States hold no data of their own, so each is a shared singleton and a
+// transition is a field write on the Game.
 interface GameState {
     void play(Game game);
 }
 
 class PlayerTurnState implements GameState {
+    static final PlayerTurnState INSTANCE = new PlayerTurnState();
+
+    private PlayerTurnState() {
+    }
+
     @Override
     public void play(Game game) {
         Player current = game.getCurrentPlayer();
-        System.out.println(current.getName() + " (" + current.getSymbol() + "), choose a slot (1-9): ");
+        if (game.isVerbose()) {
+            System.out.println(current.getName() + " (" + current.getSymbol() + "), choose a slot (1-" +
+                game.getBoard().getCellCount() + "): ");
+        }
         int slot = current.getMove(game.getBoard());
 
         if (slot == -1) {
-            System.out.println("Invalid move. Try again.");
+            if (game.isVerbose()) System.out.println("Invalid move. Try again.");
             return;
         }
 
-        game.getBoard().placeMark(slot, current.getSymbol());
-        game.setState(new CheckWinnerState());
+        game.placeMark(slot);
+        game.setState(CheckWinnerState.INSTANCE);
     }
 }
 
 class CheckWinnerState implements GameState {
+    static final CheckWinnerState INSTANCE = new CheckWinnerState();
+
+    private CheckWinnerState() {
+    }
+
     @Override
     public void play(Game game) {
-        game.getBoard().print();
+        if (game.isVerbose()) game.getBoard().print();
 
         String result = game.getBoard().checkWinner();
         if (result == null) {
             game.switchPlayer();
-            game.setState(new PlayerTurnState());
+            game.setState(PlayerTurnState.INSTANCE);
         } else {
             game.setWinner(result);
-            game.setState(new GameOverState());
+            game.setState(GameOverState.INSTANCE);
         }
     }
 }
 
 class GameOverState implements GameState {
+    static final GameOverState INSTANCE = new GameOverState();
+
+    private GameOverState() {
+    }
+
     @Override
     public void play(Game game) {
-        if (game.getWinner().equalsIgnoreCase("draw")) {
-            System.out.println("It's a draw! Thanks for playing.");
-        } else {
-            System.out.println("Congratulations! " + game.getCurrentPlayer().getName() +
-                " (" + game.getWinner() + ") has won!");
+        if (game.isVerbose()) {
+            if (game.getWinner().equalsIgnoreCase("draw")) {
+                System.out.println("It's a draw! Thanks for playing.");
+            } else {
+                System.out.println("Congratulations! " + game.getCurrentPlayer().getName() +
+                    " (" + game.getWinner() + ") has won!");
+            }
         }
-        game.setFinished(true);
+        game.finish();
     }
 }
 
@@ -63,6 +87,15 @@ abstract class Player {
 
     public abstract int getMove(Board board);
 
+    /**
+     * Asks for a move without tying up the caller. The default answers at once
+     * with getMove, which suits bots; players whose moves arrive from elsewhere
+     * return a future that completes when the move comes in.
+     */
+    public CompletableFuture<Integer> requestMove(Board board) {
+        return CompletableFuture.completedFuture(getMove(board));
+    }
+
     public String getSymbol() {
         return symbol;
     }
@@ -84,7 +117,7 @@ class HumanPlayer extends Player {
     public int getMove(Board board) {
         try {
             int move = scanner.nextInt();
-            if (move < 1 || move > 9 || !board.isSlotAvailable(move - 1)) {
+            if (move < 1 || move > board.getCellCount() || !board.isSlotAvailable(move - 1)) {
                 return -1;
             }
             return move - 1;
@@ -95,95 +128,551 @@ class HumanPlayer extends Player {
     }
 }
 
+// Plays a uniformly random free slot; cheap enough for bulk self-play
+class RandomPlayer extends Player {
+    private long state;
+
+    public RandomPlayer(String name, String symbol) {
+        this(name, symbol, System.nanoTime());
+    }
+
+    public RandomPlayer(String name, String symbol, long seed) {
+        super(name, symbol);
+        this.state = seed == 0 ? 0x9E3779B97F4A7C15L : seed;
+    }
+
+    @Override
+    public int getMove(Board board) {
+        int cells = board.getCellCount();
+        int move;
+        do {
+            move = (int) ((nextRandom() >>> 33) % cells);
+        } while (!board.isSlotAvailable(move));
+        return move;
+    }
+
+    // xorshift64*
+    private long nextRandom() {
+        state ^= state >>> 12;
+        state ^= state << 25;
+        state ^= state >>> 27;
+        return state * 0x2545F4914F6CDD1DL;
+    }
+}
+
+// A player whose moves are delivered from outside, e.g. over a network connection
+class RemotePlayer extends Player {
+    private CompletableFuture<Integer> pending;
+
+    public RemotePlayer(String name, String symbol) {
+        super(name, symbol);
+    }
+
+    @Override
+    public synchronized CompletableFuture<Integer> requestMove(Board board) {
+        pending = new CompletableFuture<>();
+        return pending;
+    }
+
+    // Hands over a move; returns false if no move was being waited for
+    public boolean offerMove(int slot) {
+        CompletableFuture<Integer> move;
+        synchronized (this) {
+            move = pending;
+            pending = null;
+        }
+        return move != null && move.complete(slot);
+    }
+
+    // Blocks until offerMove is called, for use with the synchronous Game loop
+    @Override
+    public int getMove(Board board) {
+        return requestMove(board).join();
+    }
+}
+
 class PlayerFactory {
     public static Player createPlayer(String type, String name, String symbol, Scanner scanner) {
         if (type.equalsIgnoreCase("human")) {
             return new HumanPlayer(name, symbol, scanner);
         }
-        // Can be extended for ComputerPlayer later
+        if (type.equalsIgnoreCase("computer")) {
+            return new ComputerPlayer(name, symbol);
+        }
+        if (type.equalsIgnoreCase("random")) {
+            return new RandomPlayer(name, symbol);
+        }
+        if (type.equalsIgnoreCase("perfect")) {
+            return new PerfectPlayer(name, symbol);
+        }
+        if (type.equalsIgnoreCase("mcts")) {
+            return new MctsPlayer(name, symbol);
+        }
+        if (type.equalsIgnoreCase("parallel-mcts")) {
+            return new ParallelMctsPlayer(name, symbol);
+        }
         return null;
     }
 }
 
 // ------------------- Board Class -----------------------
+// N x N board where K marks in a row (horizontally, vertically or diagonally) win
 class Board {
-    private String[] board;
+    static final int IN_PROGRESS = -1;
+    static final int DRAW = 2;
+
+    // Row and column steps for the four line directions
+    private static final int[] DIR_ROW = {0, 1, 1, 1};
+    private static final int[] DIR_COL = {1, 0, 1, -1};
+
+    private final int size;
+    private final int winLength;
+    private final int cellCount;
+    private final String[] marks;
+    private final long[][] bits; // one packed occupancy bitset per player
+    private int moveCount;
+    private int sideToMove;
+    private int status = IN_PROGRESS; // side that won, DRAW or IN_PROGRESS
+    private long hash; // Zobrist hash of the marks on the board
+    private final BoardSymmetry symmetry;
+    private final long[] symmetricHashes; // hash of each symmetric image, kept for boards above 32 slots
+    private long canonicalKey;
+    private int canonicalSymmetry = -1; // -1 until canonicalKey() runs for the current position
 
     public Board() {
-        board = new String[9];
-        for (int i = 0; i < 9; i++) {
-            board[i] = String.valueOf(i + 1);
+        this(3, 3);
+    }
+
+    public Board(String firstMark, String secondMark) {
+        this(3, 3, firstMark, secondMark);
+    }
+
+    public Board(int size, int winLength) {
+        this(size, winLength, "X", "O");
+    }
+
+    public Board(int size, int winLength, String firstMark, String secondMark) {
+        if (size < 1 || winLength < 1 || winLength > size) {
+            throw new IllegalArgumentException("Invalid board " + size + "x" + size + " with " + winLength + " in a row");
+        }
+        this.size = size;
+        this.winLength = winLength;
+        this.cellCount = size * size;
+        this.marks = new String[] {firstMark, secondMark};
+        this.bits = new long[2][(cellCount + 63) >>> 6];
+        this.symmetry = BoardSymmetry.forSize(size);
+        this.symmetricHashes = cellCount > BoardSymmetry.MAX_MASK_CELLS ? new long[BoardSymmetry.COUNT] : null;
+    }
+
+    // Empties the board so one instance can be reused for many games
+    public void reset() {
+        for (long[] set : bits) {
+            Arrays.fill(set, 0);
+        }
+        if (symmetricHashes != null) {
+            Arrays.fill(symmetricHashes, 0);
         }
+        moveCount = 0;
+        sideToMove = 0;
+        status = IN_PROGRESS;
+        hash = 0;
+        canonicalSymmetry = -1;
+    }
+
+    // Makes this board a copy of other, which must have the same dimensions; allocates nothing
+    public void copyFrom(Board other) {
+        if (other.size != size || other.winLength != winLength) {
+            throw new IllegalArgumentException("Cannot copy a " + other.size + "x" + other.size + " board");
+        }
+        for (int side = 0; side < 2; side++) {
+            System.arraycopy(other.bits[side], 0, bits[side], 0, bits[side].length);
+        }
+        if (symmetricHashes != null) {
+            System.arraycopy(other.symmetricHashes, 0, symmetricHashes, 0, symmetricHashes.length);
+        }
+        moveCount = other.moveCount;
+        sideToMove = other.sideToMove;
+        status = other.status;
+        hash = other.hash;
+        canonicalSymmetry = -1;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getWinLength() {
+        return winLength;
+    }
+
+    public int getCellCount() {
+        return cellCount;
     }
 
     public boolean isSlotAvailable(int index) {
-        return board[index].equals(String.valueOf(index + 1));
+        int word = index >>> 6;
+        return ((bits[0][word] | bits[1][word]) & (1L << index)) == 0;
     }
 
-    public void placeMark(int index, String mark) {
-        board[index] = mark;
+    /**
+     * Places a mark and checks only the runs through that slot.
+     * Returns the outcome after the move: the winning mark, "draw" or null.
+     */
+    public String placeMark(int index, String mark) {
+        place(index, sideOf(mark));
+        return checkWinner();
+    }
+
+    /**
+     * Places the mark of the side to move, for search code that plays and
+     * takes back moves on one board. Returns the status after the move.
+     */
+    public int makeMove(int index) {
+        return place(index, sideToMove);
+    }
+
+    // Takes back a move made on a board that was still in progress
+    public void undoMove(int index) {
+        int side = isSet(bits[0], index) ? 0 : 1;
+        bits[side][index >>> 6] &= ~(1L << index);
+        hash ^= zobristKey(side, index);
+        updateSymmetricHashes(side, index);
+        moveCount--;
+        sideToMove = side;
+        status = IN_PROGRESS;
+    }
+
+    private int place(int index, int side) {
+        bits[side][index >>> 6] |= 1L << index;
+        hash ^= zobristKey(side, index);
+        updateSymmetricHashes(side, index);
+        moveCount++;
+        sideToMove = 1 - side;
+
+        if (completesRun(index, side)) {
+            status = side;
+        } else if (moveCount == cellCount) {
+            status = DRAW;
+        }
+        return status;
     }
 
     public void print() {
-        System.out.println("|---|---|---|");
-        for (int i = 0; i < 9; i += 3) {
-            System.out.println("| " + board[i] + " | " + board[i + 1] + " | " + board[i + 2] + " |");
-            if (i < 6) System.out.println("|-----------|");
+        int width = String.valueOf(cellCount).length();
+        StringBuilder border = new StringBuilder("|");
+        for (int col = 0; col < size; col++) {
+            border.append("-".repeat(width + 2)).append('|');
         }
-        System.out.println("|---|---|---|");
+        String separator = "|" + "-".repeat(size * (width + 3) - 1) + "|";
+
+        System.out.println(border);
+        for (int row = 0; row < size; row++) {
+            StringBuilder line = new StringBuilder("|");
+            for (int col = 0; col < size; col++) {
+                String cell = cell(row * size + col);
+                line.append(' ').append(cell).append(" ".repeat(width - cell.length())).append(" |");
+            }
+            System.out.println(line);
+            if (row < size - 1) System.out.println(separator);
+        }
+        System.out.println(border);
     }
 
+    // Outcome is maintained by placeMark, so this is a field read
     public String checkWinner() {
-        String[][] combos = {
-            {board[0], board[1], board[2]},
-            {board[3], board[4], board[5]},
-            {board[6], board[7], board[8]},
-            {board[0], board[3], board[6]},
-            {board[1], board[4], board[7]},
-            {board[2], board[5], board[8]},
-            {board[0], board[4], board[8]},
-            {board[2], board[4], board[6]},
-        };
-
-        for (String[] line : combos) {
-            if (line[0].equals(line[1]) && line[1].equals(line[2])) {
-                return line[0]; // X or O
+        if (status == IN_PROGRESS) return null; // still playing
+        if (status == DRAW) return "draw";
+        return marks[status]; // X or O
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Key that is the same for all eight rotations and reflections of this
+     * position. Up to 32 slots it is exact: the smallest of the symmetric
+     * images packed as (first player's mask << 32 | second player's mask).
+     * Larger boards use the smallest symmetric Zobrist hash instead.
+     */
+    public long canonicalKey() {
+        if (canonicalSymmetry >= 0) return canonicalKey;
+        long best = -1L; // compared unsigned, so this is the largest key
+        int bestSymmetry = 0;
+        for (int s = 0; s < BoardSymmetry.COUNT; s++) {
+            long key;
+            if (symmetricHashes != null) {
+                key = symmetricHashes[s];
+            } else {
+                int first = (int) bits[0][0];
+                int second = (int) bits[1][0];
+                key = ((long) symmetry.permuteMask(s, first) << 32) | (symmetry.permuteMask(s, second) & 0xFFFFFFFFL);
+            }
+            if (Long.compareUnsigned(key, best) < 0) {
+                best = key;
+                bestSymmetry = s;
             }
         }
+        canonicalKey = best;
+        canonicalSymmetry = bestSymmetry;
+        return best;
+    }
+
+    // Symmetry that maps this position onto the one canonicalKey() describes
+    public int canonicalSymmetry() {
+        canonicalKey();
+        return canonicalSymmetry;
+    }
+
+    // Slot in the canonical orientation that corresponds to index on this board
+    public int toCanonical(int index) {
+        return symmetry.permutation[canonicalSymmetry()][index];
+    }
+
+    public int fromCanonical(int index) {
+        return symmetry.inverse[canonicalSymmetry()][index];
+    }
+
+    private void updateSymmetricHashes(int side, int index) {
+        canonicalSymmetry = -1;
+        if (symmetricHashes == null) return;
+        int[][] permutation = symmetry.permutation;
+        for (int s = 0; s < BoardSymmetry.COUNT; s++) {
+            symmetricHashes[s] ^= zobristKey(side, permutation[s][index]);
+        }
+    }
+
+    /**
+     * Random-looking key for a mark of side on a slot, the XOR of which over all
+     * marks gives the position hash. Derived with the SplitMix64 finalizer so
+     * boards of any size share it without a table.
+     */
+    static long zobristKey(int side, int index) {
+        long z = (index * 2L + side + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Side whose mark is on the slot, or -1 if it is empty
+    public int getOwner(int index) {
+        if (isSet(bits[0], index)) return 0;
+        if (isSet(bits[1], index)) return 1;
+        return -1;
+    }
 
-        for (int i = 0; i < 9; i++) {
-            if (board[i].equals(String.valueOf(i + 1))) {
-                return null; // still playing
+    // Counts consecutive marks of side through index in each direction
+    private boolean completesRun(int index, int side) {
+        long[] own = bits[side];
+        int row = index / size;
+        int col = index % size;
+        for (int dir = 0; dir < 4; dir++) {
+            int dr = DIR_ROW[dir];
+            int dc = DIR_COL[dir];
+            int run = 1;
+            for (int r = row + dr, c = col + dc; run < winLength && r >= 0 && r < size && c >= 0 && c < size; r += dr, c += dc) {
+                if (!isSet(own, r * size + c)) break;
+                run++;
             }
+            for (int r = row - dr, c = col - dc; run < winLength && r >= 0 && r < size && c >= 0 && c < size; r -= dr, c -= dc) {
+                if (!isSet(own, r * size + c)) break;
+                run++;
+            }
+            if (run >= winLength) return true;
         }
-        return "draw";
+        return false;
+    }
+
+    private static boolean isSet(long[] set, int index) {
+        return (set[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public int sideOf(String mark) {
+        return marks[0].equals(mark) ? 0 : 1;
+    }
+
+    private String cell(int index) {
+        if (isSet(bits[0], index)) return marks[0];
+        if (isSet(bits[1], index)) return marks[1];
+        return String.valueOf(index + 1);
     }
 }
 
 // ----------------- Game Class (Context) -------------------
 class Game {
+    static final int MOVE_REJECTED = -2;
+    static final int MAX_REJECTED_MOVES = 100; // in a row, before playAsync gives up on a player
+
     private GameState state;
     private Player player1;
     private Player player2;
     private Player currentPlayer;
     private Board board;
     private boolean isFinished = false;
+    private boolean verbose = true; // console prompts and board printing
     private String winner;
+    private MoveLog log;
+    private MoveLog.Recorder recorder;
 
     public Game(Player p1, Player p2) {
-        this.board = new Board();
+        this(p1, p2, 3, 3);
+    }
+
+    public Game(Player p1, Player p2, int size, int winLength) {
+        this.board = new Board(size, winLength, p1.getSymbol(), p2.getSymbol());
         this.player1 = p1;
         this.player2 = p2;
         this.currentPlayer = player1;
-        this.state = new PlayerTurnState();
+        this.state = PlayerTurnState.INSTANCE;
     }
 
     public void start() {
-        System.out.println("Welcome to Tic Tac Toe!");
-        board.print();
+        if (verbose) {
+            System.out.println("Welcome to Tic Tac Toe!");
+            board.print();
+        }
+        while (step()) {
+            // each step runs one state
+        }
+    }
+
+    /**
+     * Runs the current state once. Returns false when the game has finished.
+     * With verbose off a step prints nothing and allocates nothing of its own.
+     */
+    public boolean step() {
+        if (isFinished) return false;
+        state.play(this);
+        return !isFinished;
+    }
+
+    /**
+     * Applies a move for the player whose turn it is and advances the state
+     * machine to the next turn or to the end of the game. Returns the board
+     * status after the move, or MOVE_REJECTED if the game is not waiting for
+     * a move or the slot is not free.
+     */
+    public synchronized int submitMove(int slot) {
+        if (isFinished || state != PlayerTurnState.INSTANCE
+                || slot < 0 || slot >= board.getCellCount() || !board.isSlotAvailable(slot)) {
+            return MOVE_REJECTED;
+        }
+        placeMark(slot);
+        state = CheckWinnerState.INSTANCE;
+        while (state != PlayerTurnState.INSTANCE && step()) {
+            // run the winner check, and the game over state if reached
+        }
+        return board.getStatus();
+    }
+
+    // Same as submitMove, but rejects the move unless it is player's turn
+    public synchronized int submitMove(Player player, int slot) {
+        return player == currentPlayer ? submitMove(slot) : MOVE_REJECTED;
+    }
+
+    /**
+     * Plays the game through Player.requestMove without blocking: moves that
+     * are already available are applied in a loop, and otherwise the game
+     * waits on the player's future and resumes on whichever thread completes
+     * it. The returned future completes with this game when it is over, or
+     * exceptionally if a player fails or makes MAX_REJECTED_MOVES illegal
+     * moves in a row.
+     */
+    public CompletableFuture<Game> playAsync() {
+        CompletableFuture<Game> done = new CompletableFuture<>();
+        try {
+            advance(done, 0);
+        } catch (RuntimeException e) {
+            done.completeExceptionally(e); // e.g. thrown by requestMove itself
+        }
+        return done;
+    }
+
+    private void advance(CompletableFuture<Game> done, int rejected) {
         while (!isFinished) {
-            state.play(this);
+            CompletableFuture<Integer> move = currentPlayer.requestMove(board);
+            if (!move.isDone()) {
+                int rejectedSoFar = rejected;
+                move.whenComplete((slot, error) -> {
+                    try {
+                        if (error != null) {
+                            done.completeExceptionally(error);
+                        } else {
+                            int run = apply(slot, rejectedSoFar, done);
+                            if (run >= 0) advance(done, run);
+                        }
+                    } catch (RuntimeException e) {
+                        done.completeExceptionally(e);
+                    }
+                });
+                return;
+            }
+            try {
+                rejected = apply(move.join(), rejected, done);
+            } catch (CompletionException e) {
+                done.completeExceptionally(e.getCause());
+                return;
+            } catch (RuntimeException e) {
+                done.completeExceptionally(e);
+                return;
+            }
+            if (rejected < 0) return;
         }
+        done.complete(this);
+    }
+
+    // Submits slot and returns the run of rejected moves it extends, or -1 after failing done
+    private int apply(Integer slot, int rejected, CompletableFuture<Game> done) {
+        if (slot != null && submitMove(slot) != MOVE_REJECTED) return 0;
+        if (++rejected < MAX_REJECTED_MOVES) return rejected; // a rejected move is requested again
+        done.completeExceptionally(new IllegalStateException(currentPlayer.getName() + " made " + rejected
+            + " illegal moves in a row"));
+        return -1;
+    }
+
+    // Places the current player's mark, recording the move if the game is logged
+    public void placeMark(int slot) {
+        String symbol = currentPlayer.getSymbol();
+        board.placeMark(slot, symbol);
+        if (recorder != null) recorder.move(board.sideOf(symbol), slot);
+    }
+
+    // Ends the game and, if it is logged, appends its record to the log
+    public void finish() {
+        isFinished = true;
+        if (recorder != null) {
+            recorder.gameOver(board.getStatus());
+            log.append(recorder);
+        }
+    }
+
+    // Records this game's moves into log; call before the first move
+    public void setLog(MoveLog log) {
+        this.log = log;
+        this.recorder = log == null ? null : new MoveLog.Recorder();
+        if (recorder != null) recorder.start(board);
+    }
+
+    // Starts a new game on the same board, first player to move
+    public void reset() {
+        board.reset();
+        if (recorder != null) recorder.start(board);
+        currentPlayer = player1;
+        state = PlayerTurnState.INSTANCE;
+        isFinished = false;
+        winner = null;
     }
 
     public void setState(GameState state) {
@@ -213,6 +702,22 @@ class Game {
     public void setFinished(boolean finished) {
         this.isFinished = finished;
     }
+
+    public boolean isFinished() {
+        return isFinished;
+    }
+
+    public GameState getState() {
+        return state;
+    }
+
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    public boolean isVerbose() {
+        return verbose;
+    }
 }
 
 // ---------------- Main Class -------------------
@@ -220,10 +725,15 @@ public class Geeks {
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
 
+        // Optional arguments: board size, marks in a row needed to win and the second player's type
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int winLength = args.length > 1 ? Integer.parseInt(args[1]) : Math.min(size, 5);
+        String opponent = args.length > 2 ? args[2] : "human";
+
         Player p1 = PlayerFactory.createPlayer("human", "Player 1", "X", scanner);
-        Player p2 = PlayerFactory.createPlayer("human", "Player 2", "O", scanner);
+        Player p2 = PlayerFactory.createPlayer(opponent, "Player 2", "O", scanner);
 
-        Game game = new Game(p1, p2);
+        Game game = new Game(p1, p2, size, winLength);
         game.start();
 
         scanner.close();
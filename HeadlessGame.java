@@ -0,0 +1,72 @@
+// ----------- Headless game runner --------------
+// Plays complete games between two players with no console output and no
+// GameState objects, reusing one Board for every game it runs.
+// Results are packed into an int: outcome in the low two bits, move count above them.
+class HeadlessGame {
+    static final int FIRST_WINS = 0;
+    static final int SECOND_WINS = 1;
+    static final int DRAW = 2;
+    static final int FORFEIT = 1 << 15; // set when the loser returned an illegal move
+
+    private final Board board;
+    private MoveLog log;
+    private final MoveLog.Recorder recorder = new MoveLog.Recorder();
+
+    public HeadlessGame() {
+        this(3, 3);
+    }
+
+    public HeadlessGame(int size, int winLength) {
+        this.board = new Board(size, winLength);
+    }
+
+    // Appends every completed game to log; forfeited games are not logged
+    public void setLog(MoveLog log) {
+        this.log = log;
+    }
+
+    // Plays one game with first moving first and returns the packed result
+    public int play(Player first, Player second) {
+        board.reset();
+        if (log != null) recorder.start(board);
+        Player current = first;
+        while (true) {
+            int side = board.getSideToMove();
+            int move = current.getMove(board);
+            if (move < 0 || move >= board.getCellCount() || !board.isSlotAvailable(move)) {
+                return result(1 - side, board.getMoveCount()) | FORFEIT;
+            }
+            int status = board.makeMove(move);
+            if (log != null) recorder.move(side, move);
+            if (status != Board.IN_PROGRESS) {
+                if (log != null) {
+                    recorder.gameOver(status);
+                    log.append(recorder);
+                }
+                return result(status, board.getMoveCount());
+            }
+            current = current == first ? second : first;
+        }
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
+    static int outcomeOf(int result) {
+        return result & 0x3;
+    }
+
+    static int movesOf(int result) {
+        return (result & ~FORFEIT) >>> 2;
+    }
+
+    static boolean isForfeit(int result) {
+        return (result & FORFEIT) != 0;
+    }
+
+    // Board statuses line up with the outcomes: side 0, side 1, then Board.DRAW
+    private static int result(int status, int moves) {
+        return moves << 2 | status;
+    }
+}
@@ -0,0 +1,154 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// ----------- Matchmaking --------------
+// Pairs waiting players of similar rating and starts a Game for each pair.
+// Every rating bucket is a single waiting slot changed only by compare-and-set:
+// an arriving player takes the waiting opponent if there is one and otherwise
+// claims the empty slot, retrying when another thread got there first. A bucket
+// therefore never holds two players who could have been paired with each other.
+// Players are queued as factories, like Tournament entrants, because the
+// symbol each one plays is only known once the pair is made.
+public class Matchmaker {
+    private final int bucketWidth;
+    private final AtomicReferenceArray<Ticket> waiting; // null when nobody waits in the bucket
+    private final Consumer<Game> onMatch;
+
+    private final LongAdder matches = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public Matchmaker(int maxRating, int bucketWidth, Consumer<Game> onMatch) {
+        this.bucketWidth = bucketWidth;
+        this.waiting = new AtomicReferenceArray<>(maxRating / bucketWidth + 1);
+        this.onMatch = onMatch;
+    }
+
+    // Queues a player; the factory receives the symbol it will play once paired
+    public void enqueue(int rating, Function<String, Player> player) {
+        offer(bucketOf(rating), new Ticket(player, System.nanoTime()));
+    }
+
+    /**
+     * Pairs players who have waited longer than maxWaitNanos with the one
+     * waiting in the neighbouring bucket, so thinly populated ratings still
+     * find games. Meant to be called periodically, e.g. from a scheduled executor.
+     */
+    public void widenSearch(long maxWaitNanos) {
+        long now = System.nanoTime();
+        for (int bucket = 0; bucket + 1 < waiting.length(); bucket++) {
+            Ticket lower = waiting.get(bucket);
+            Ticket upper = waiting.get(bucket + 1);
+            if (lower == null || upper == null) continue;
+            if (now - lower.enqueuedNanos <= maxWaitNanos && now - upper.enqueuedNanos <= maxWaitNanos) continue;
+            if (!waiting.compareAndSet(bucket, lower, null)) continue; // paired by an arrival meanwhile
+            if (waiting.compareAndSet(bucket + 1, upper, null)) {
+                start(lower, upper);
+            } else {
+                offer(bucket, lower); // pairs with whoever took the slot since, or waits again
+            }
+        }
+    }
+
+    public long getMatches() {
+        return matches.sum();
+    }
+
+    public long getQueueDepth() {
+        long total = 0;
+        for (int i = 0; i < waiting.length(); i++) {
+            if (waiting.get(i) != null) total++;
+        }
+        return total;
+    }
+
+    public long getQueueDepth(int rating) {
+        return waiting.get(bucketOf(rating)) == null ? 0 : 1;
+    }
+
+    public long getAverageWaitNanos() {
+        long count = matches.sum() * 2;
+        return count == 0 ? 0 : totalWaitNanos.sum() / count;
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    private int bucketOf(int rating) {
+        return Math.max(0, Math.min(waiting.length() - 1, rating / bucketWidth));
+    }
+
+    // Pairs ticket with the player waiting in bucket, or leaves it waiting there
+    private void offer(int bucket, Ticket ticket) {
+        while (true) {
+            Ticket opponent = waiting.get(bucket);
+            if (opponent == null) {
+                if (waiting.compareAndSet(bucket, null, ticket)) return;
+            } else if (waiting.compareAndSet(bucket, opponent, null)) {
+                start(opponent, ticket);
+                return;
+            }
+        }
+    }
+
+    // The player who waited longer moves first
+    private void start(Ticket waiting, Ticket arriving) {
+        long now = System.nanoTime();
+        recordWait(now - waiting.enqueuedNanos);
+        recordWait(now - arriving.enqueuedNanos);
+        matches.increment();
+
+        Ticket first = waiting.enqueuedNanos <= arriving.enqueuedNanos ? waiting : arriving;
+        Ticket second = first == waiting ? arriving : waiting;
+        onMatch.accept(new Game(first.player.apply("X"), second.player.apply("O")));
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private static final class Ticket {
+        final Function<String, Player> player;
+        final long enqueuedNanos;
+
+        Ticket(Function<String, Player> player, long enqueuedNanos) {
+            this.player = player;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        // Optional arguments: producer threads and players queued per thread
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 250_000;
+
+        LongAdder started = new LongAdder();
+        Matchmaker matchmaker = new Matchmaker(3000, 100, game -> started.increment());
+        Thread[] producers = new Thread[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            producers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < perThread; i++) {
+                    int rating = (int) Math.max(0, Math.min(3000, 1500 + random.nextGaussian() * 400));
+                    matchmaker.enqueue(rating, symbol -> new RandomPlayer("bot", symbol));
+                }
+            });
+            producers[t].start();
+        }
+        for (Thread producer : producers) producer.join();
+        matchmaker.widenSearch(0);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d games started in %.2f s: %.0f pairings/sec%n", started.sum(), seconds,
+            matchmaker.getMatches() / seconds);
+        System.out.printf("still queued %d, average wait %.1f us, max wait %.1f ms%n", matchmaker.getQueueDepth(),
+            matchmaker.getAverageWaitNanos() / 1e3, matchmaker.getMaxWaitNanos() / 1e6);
+    }
+}
@@ -0,0 +1,265 @@
+// ----------- Monte Carlo tree search player --------------
+// UCT search that grows a tree of moves by random playouts on the game's own board.
+// Nodes live in preallocated parallel arrays indexed by node number, and every
+// playout plays and takes back moves with makeMove/undoMove, so a search allocates
+// nothing after the first move. Children of a node are stored next to each other,
+// created all at once the second time the node is reached.
+// Keeps per-search buffers, so one instance should not be shared between threads.
+class MctsPlayer extends Player {
+    static final double EXPLORATION = 1.4; // about sqrt(2), the UCT constant
+    private static final int NEAR_MARKS_CELLS = 16; // larger boards only expand slots next to a mark
+    private static final int DEFAULT_NODES = 1 << 20;
+    static final int TIME_CHECK_INTERVAL = 64; // playouts between clock reads
+    private static final int UNEXPANDED = -1;
+
+    private final long budgetNanos;  // 0 for no time limit
+    private final long maxPlayouts;  // 0 for no playout limit
+
+    // Node pool; node 0 is the root
+    private final int[] nodeMove;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final int[] visits;
+    private final float[] score;     // wins plus half the draws, for the side that played nodeMove
+    private final byte[] terminal;   // Board status reached by nodeMove, IN_PROGRESS if none
+    private int nodeCount;
+
+    // Search buffers for the current board size
+    private int[] path = new int[0];
+    private int[] pathMoves = new int[0];
+    private int[] empties = new int[0];
+    private int[] playoutMoves = new int[0];
+
+    private long random = System.nanoTime() | 1;
+    private long playouts;
+    private long elapsedNanos;
+
+    public MctsPlayer(String name, String symbol) {
+        this(name, symbol, 1_000_000_000L, 20_000);
+    }
+
+    public MctsPlayer(String name, String symbol, long budgetNanos, long maxPlayouts) {
+        this(name, symbol, budgetNanos, maxPlayouts, DEFAULT_NODES);
+    }
+
+    public MctsPlayer(String name, String symbol, long budgetNanos, long maxPlayouts, int maxNodes) {
+        super(name, symbol);
+        if (budgetNanos <= 0 && maxPlayouts <= 0) {
+            throw new IllegalArgumentException("A time or playout budget is required");
+        }
+        this.budgetNanos = budgetNanos;
+        this.maxPlayouts = maxPlayouts;
+        this.nodeMove = new int[maxNodes];
+        this.firstChild = new int[maxNodes];
+        this.childCount = new int[maxNodes];
+        this.visits = new int[maxNodes];
+        this.score = new float[maxNodes];
+        this.terminal = new byte[maxNodes];
+    }
+
+    @Override
+    public int getMove(Board board) {
+        ensureBuffers(board.getCellCount());
+        long start = System.nanoTime();
+        nodeCount = 0;
+        newNode(-1, Board.IN_PROGRESS);
+        int rootSide = board.getSideToMove();
+
+        playouts = 0;
+        while (maxPlayouts <= 0 || playouts < maxPlayouts) {
+            if (budgetNanos > 0 && playouts % TIME_CHECK_INTERVAL == 0 && System.nanoTime() - start >= budgetNanos) {
+                break;
+            }
+            iterate(board, rootSide);
+            playouts++;
+        }
+        elapsedNanos = System.nanoTime() - start;
+
+        if (childCount[0] == 0) return firstFreeSlot(board); // pool too small for even the root's children
+
+        // The most visited reply is the most trusted one
+        int best = firstChild[0];
+        for (int child = firstChild[0]; child < firstChild[0] + childCount[0]; child++) {
+            if (visits[child] > visits[best]) best = child;
+        }
+        return nodeMove[best];
+    }
+
+    // Playouts run by the last getMove call
+    public long getPlayoutCount() {
+        return playouts;
+    }
+
+    public double getPlayoutsPerSecond() {
+        return playouts * 1e9 / Math.max(elapsedNanos, 1);
+    }
+
+    // Tree nodes used by the last getMove call
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    // Adds the visits each root reply received in the last search to visitsBySlot
+    void addRootVisits(long[] visitsBySlot) {
+        for (int child = firstChild[0]; child < firstChild[0] + childCount[0]; child++) {
+            visitsBySlot[nodeMove[child]] += visits[child];
+        }
+    }
+
+    // One selection, expansion, playout and backup pass; leaves board as it found it
+    private void iterate(Board board, int rootSide) {
+        int node = 0;
+        int depth = 0;
+        int status = Board.IN_PROGRESS;
+        path[0] = 0;
+        while (status == Board.IN_PROGRESS) {
+            if (firstChild[node] == UNEXPANDED) {
+                if (node != 0 && visits[node] == 0) break; // first visit: play out from here
+                if (!expand(board, node)) break;           // pool is full
+            }
+            node = select(node);
+            pathMoves[depth] = nodeMove[node];
+            path[++depth] = node;
+            if (terminal[node] == Board.IN_PROGRESS) {
+                status = board.makeMove(nodeMove[node]);
+                terminal[node] = (byte) status;
+            } else {
+                board.makeMove(nodeMove[node]);
+                status = terminal[node];
+            }
+        }
+
+        int played = 0;
+        if (status == Board.IN_PROGRESS) {
+            played = playout(board);
+            status = board.getStatus();
+        }
+        for (int i = played - 1; i >= 0; i--) board.undoMove(playoutMoves[i]);
+
+        // Node at depth d was reached by a move of the root side when d is odd
+        for (int d = depth; d >= 0; d--) {
+            int mover = (d & 1) == 1 ? rootSide : 1 - rootSide;
+            visits[path[d]]++;
+            score[path[d]] += status == mover ? 1f : status == Board.DRAW ? 0.5f : 0f;
+            if (d > 0) board.undoMove(pathMoves[d - 1]);
+        }
+    }
+
+    private int select(int node) {
+        double logParent = Math.log(Math.max(visits[node], 1));
+        int best = -1;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = firstChild[node]; child < firstChild[node] + childCount[node]; child++) {
+            if (visits[child] == 0) return child; // children are shuffled, so the first unvisited is random
+            double value = score[child] / visits[child] + EXPLORATION * Math.sqrt(logParent / visits[child]);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    // Creates the children of node in random order; false when the pool has no room
+    private boolean expand(Board board, int node) {
+        int count = candidateMoves(board, empties);
+        if (nodeCount + count > nodeMove.length) return false;
+        shuffle(empties, count);
+        firstChild[node] = nodeCount;
+        childCount[node] = count;
+        for (int i = 0; i < count; i++) newNode(empties[i], Board.IN_PROGRESS);
+        return true;
+    }
+
+    // Random moves to the end of the game; returns how many were played
+    private int playout(Board board) {
+        int cells = board.getCellCount();
+        int free = 0;
+        for (int index = 0; index < cells; index++) {
+            if (board.isSlotAvailable(index)) empties[free++] = index;
+        }
+        int played = 0;
+        int status = Board.IN_PROGRESS;
+        while (status == Board.IN_PROGRESS) {
+            int pick = (int) ((nextRandom() >>> 33) % free);
+            int move = empties[pick];
+            empties[pick] = empties[--free];
+            playoutMoves[played++] = move;
+            status = board.makeMove(move);
+        }
+        return played;
+    }
+
+    // Fills moves with the slots worth expanding and returns how many there are
+    static int candidateMoves(Board board, int[] moves) {
+        int cells = board.getCellCount();
+        int size = board.getSize();
+        boolean nearMarksOnly = cells > NEAR_MARKS_CELLS && board.getMoveCount() > 0;
+        int count = 0;
+        for (int index = 0; index < cells; index++) {
+            if (board.isSlotAvailable(index) && (!nearMarksOnly || touchesMark(board, index, size))) {
+                moves[count++] = index;
+            }
+        }
+        if (count == 0) { // every slot next to a mark is taken
+            for (int index = 0; index < cells; index++) {
+                if (board.isSlotAvailable(index)) moves[count++] = index;
+            }
+        }
+        return count;
+    }
+
+    static int firstFreeSlot(Board board) {
+        for (int index = 0; index < board.getCellCount(); index++) {
+            if (board.isSlotAvailable(index)) return index;
+        }
+        return -1;
+    }
+
+    private static boolean touchesMark(Board board, int index, int size) {
+        int row = index / size;
+        int col = index % size;
+        for (int r = Math.max(0, row - 1); r <= Math.min(size - 1, row + 1); r++) {
+            for (int c = Math.max(0, col - 1); c <= Math.min(size - 1, col + 1); c++) {
+                if (!board.isSlotAvailable(r * size + c)) return true;
+            }
+        }
+        return false;
+    }
+
+    private void newNode(int move, int status) {
+        int node = nodeCount++;
+        nodeMove[node] = move;
+        firstChild[node] = UNEXPANDED;
+        childCount[node] = 0;
+        visits[node] = 0;
+        score[node] = 0;
+        terminal[node] = (byte) status;
+    }
+
+    private void shuffle(int[] values, int count) {
+        for (int i = count - 1; i > 0; i--) {
+            int j = (int) ((nextRandom() >>> 33) % (i + 1));
+            int value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+
+    // xorshift64*
+    private long nextRandom() {
+        random ^= random >>> 12;
+        random ^= random << 25;
+        random ^= random >>> 27;
+        return random * 0x2545F4914F6CDD1DL;
+    }
+
+    private void ensureBuffers(int cellCount) {
+        if (empties.length < cellCount) {
+            path = new int[cellCount + 1];
+            pathMoves = new int[cellCount];
+            empties = new int[cellCount];
+            playoutMoves = new int[cellCount];
+        }
+    }
+}
@@ -0,0 +1,168 @@
+import java.io.*;
+import java.util.Arrays;
+
+// ----------- Event-sourced move log --------------
+// Append-only log of finished games that can rebuild any of them by replaying its moves.
+//
+// A game is recorded as:
+//   START      0xC0, size, winLength
+//   MOVE       boards up to 64 slots: one byte 0 s cccccc (s = side, c = slot);
+//              larger boards: two bytes 0 s cccccc cccccccc with a 14-bit slot
+//   GAME_OVER  0x80 | status (0 X won, 1 O won, 2 draw)
+// Player switches are not stored separately: each move carries the side that made it.
+class MoveLog {
+    static final int START = 0xC0;
+    static final int GAME_OVER = 0x80;
+    private static final int SIDE_BIT = 0x40;
+
+    private byte[] data = new byte[1 << 16];
+    private int length;
+    private int[] gameOffsets = new int[1024];
+    private int games;
+
+    // Copies a finished game into the log; safe to call from many games at once
+    public synchronized void append(Recorder recorder) {
+        if (length + recorder.length > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + recorder.length));
+        }
+        if (games == gameOffsets.length) {
+            gameOffsets = Arrays.copyOf(gameOffsets, games * 2);
+        }
+        gameOffsets[games++] = length;
+        System.arraycopy(recorder.buffer, 0, data, length, recorder.length);
+        length += recorder.length;
+    }
+
+    public synchronized int getGameCount() {
+        return games;
+    }
+
+    // Encoded size of all games in bytes
+    public synchronized int size() {
+        return length;
+    }
+
+    // Raw bytes of one game, as written by Recorder
+    public synchronized byte[] getGame(int game) {
+        int end = game + 1 < games ? gameOffsets[game + 1] : length;
+        return Arrays.copyOfRange(data, gameOffsets[game], end);
+    }
+
+    /**
+     * Rebuilds a logged game by feeding its moves through Game.submitMove, and
+     * checks the replayed outcome against the logged one.
+     */
+    public Game replay(int game) {
+        return replay(getGame(game));
+    }
+
+    static Game replay(byte[] record) {
+        if ((record[0] & 0xFF) != START) {
+            throw new IllegalArgumentException("Record does not start with a START event");
+        }
+        int size = record[1];
+        int winLength = record[2];
+        Game game = new Game(new RemotePlayer("Player 1", "X"), new RemotePlayer("Player 2", "O"), size, winLength);
+        game.setVerbose(false);
+        boolean wide = size * size > 64;
+
+        int position = 3;
+        while (position < record.length) {
+            int event = record[position++] & 0xFF;
+            if ((event & GAME_OVER) != 0) {
+                int status = event & 0x3;
+                if (game.getBoard().getStatus() != status) {
+                    throw new IllegalStateException("Replay ended with status " + game.getBoard().getStatus()
+                        + " but the log recorded " + status);
+                }
+                return game;
+            }
+            int side = (event & SIDE_BIT) != 0 ? 1 : 0;
+            int slot = event & 0x3F;
+            if (wide) slot = slot << 8 | (record[position++] & 0xFF);
+            if (side != game.getBoard().getSideToMove() || game.submitMove(slot) == Game.MOVE_REJECTED) {
+                throw new IllegalStateException("Logged move " + slot + " by side " + side + " cannot be replayed");
+            }
+        }
+        throw new IllegalStateException("Record has no GAME_OVER event");
+    }
+
+    // Slots played in a record, in order
+    static int[] movesOf(byte[] record) {
+        boolean wide = record[1] * record[1] > 64;
+        int[] moves = new int[record.length];
+        int count = 0;
+        for (int position = 3; position < record.length; ) {
+            int event = record[position++] & 0xFF;
+            if ((event & GAME_OVER) != 0) break;
+            int slot = event & 0x3F;
+            if (wide) slot = slot << 8 | (record[position++] & 0xFF);
+            moves[count++] = slot;
+        }
+        return Arrays.copyOf(moves, count);
+    }
+
+    // Final board status stored in a record's GAME_OVER event
+    static int statusOf(byte[] record) {
+        return record[record.length - 1] & 0x3;
+    }
+
+    public synchronized void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(games);
+        for (int i = 0; i < games; i++) data.writeInt(gameOffsets[i]);
+        data.writeInt(length);
+        data.write(this.data, 0, length);
+        data.flush();
+    }
+
+    static MoveLog readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        MoveLog log = new MoveLog();
+        log.games = data.readInt();
+        log.gameOffsets = new int[Math.max(log.games, 1)];
+        for (int i = 0; i < log.games; i++) log.gameOffsets[i] = data.readInt();
+        log.length = data.readInt();
+        log.data = new byte[Math.max(log.length, 1)];
+        data.readFully(log.data, 0, log.length);
+        return log;
+    }
+
+    // Encodes one game as it is played; start() begins the next game in the same buffer
+    static class Recorder {
+        private byte[] buffer = new byte[64];
+        private int length;
+        private boolean wide;
+
+        public void start(Board board) {
+            length = 0;
+            wide = board.getCellCount() > 64;
+            put(START);
+            put(board.getSize());
+            put(board.getWinLength());
+        }
+
+        public void move(int side, int slot) {
+            int sideBit = side == 1 ? SIDE_BIT : 0;
+            if (wide) {
+                put(sideBit | slot >>> 8);
+                put(slot & 0xFF);
+            } else {
+                put(sideBit | slot);
+            }
+        }
+
+        public void gameOver(int status) {
+            put(GAME_OVER | status);
+        }
+
+        public int length() {
+            return length;
+        }
+
+        private void put(int value) {
+            if (length == buffer.length) buffer = Arrays.copyOf(buffer, length * 2);
+            buffer[length++] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+// ----------- Opening book --------------
+// Moves to play in well-known early positions, keyed by Board.canonicalKey() so one
+// entry covers all eight rotations and reflections. Moves are stored in the canonical
+// orientation with a weight each, and a lookup picks one at random in proportion to
+// its weight. The book is immutable once built, so players on any thread can share it.
+//
+// Book file: int magic | int version | int size | int winLength | int positions |
+// positions x (long key | byte moves | moves x (short canonical slot | int weight)), sorted by key.
+class OpeningBook {
+    private static final int MAGIC = 0x54545442; // "TTTB"
+    private static final int VERSION = 1;
+
+    private final int size;
+    private final int winLength;
+    private final int positions;
+    private final long[] keys;     // open-addressed
+    private final int[] firstMove; // index of a slot's first move + 1, 0 for an empty slot
+    private final byte[] moveCount;
+    private short[] moves = new short[64];
+    private int[] cumulativeWeights = new int[64]; // running total within each position
+    private int storedMoves;
+
+    private OpeningBook(int size, int winLength, int positions) {
+        this.size = size;
+        this.winLength = winLength;
+        this.positions = positions;
+        int slots = Integer.highestOneBit(Math.max(positions, 1) * 2 - 1) << 1;
+        this.keys = new long[slots];
+        this.firstMove = new int[slots];
+        this.moveCount = new byte[slots];
+    }
+
+    /**
+     * Book move for board chosen using random bits, or -1 when the position is
+     * not in the book. Different random values spread play over the weighted moves.
+     */
+    public int move(Board board, long random) {
+        if (board.getSize() != size || board.getWinLength() != winLength) return -1;
+        int slot = find(board.canonicalKey());
+        int first = firstMove[slot] - 1;
+        if (first < 0) return -1;
+        int last = first + moveCount[slot] - 1;
+        int pick = (int) ((random >>> 1) % cumulativeWeights[last]);
+        int i = first;
+        while (cumulativeWeights[i] <= pick) i++;
+        int move = board.fromCanonical(moves[i]);
+        return board.isSlotAvailable(move) ? move : -1;
+    }
+
+    public boolean contains(Board board) {
+        return board.getSize() == size && board.getWinLength() == winLength
+            && firstMove[find(board.canonicalKey())] != 0;
+    }
+
+    public int getPositionCount() {
+        return positions;
+    }
+
+    /**
+     * Builds a book from aggregated statistics by walking every position that at
+     * least minGames games reached. Each keeps its topMoves best replies by score
+     * for the side to move, weighted by the points they scored (two per win, one
+     * per draw), so strong and well-tested moves are played most often.
+     */
+    static OpeningBook build(OpeningStats stats, int minGames, int topMoves) {
+        Builder builder = new Builder(stats, minGames, Math.min(topMoves, Byte.MAX_VALUE));
+        builder.visit(new Board(stats.getSize(), stats.getWinLength()), 0);
+        OpeningBook book = new OpeningBook(stats.getSize(), stats.getWinLength(), builder.count);
+        for (int i = 0; i < builder.count; i++) {
+            int from = builder.firstMove[i];
+            int to = i + 1 < builder.count ? builder.firstMove[i + 1] : builder.moveTotal;
+            book.put(builder.keys[i], Arrays.copyOfRange(builder.moves, from, to),
+                Arrays.copyOfRange(builder.weights, from, to));
+        }
+        return book;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        long[] sorted = new long[positions];
+        int count = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (firstMove[slot] != 0) sorted[count++] = keys[slot];
+        }
+        Arrays.sort(sorted);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(size);
+        data.writeInt(winLength);
+        data.writeInt(positions);
+        for (long key : sorted) {
+            int slot = find(key);
+            int first = firstMove[slot] - 1;
+            data.writeLong(key);
+            data.writeByte(moveCount[slot]);
+            for (int i = first; i < first + moveCount[slot]; i++) {
+                data.writeShort(moves[i]);
+                data.writeInt(cumulativeWeights[i] - (i > first ? cumulativeWeights[i - 1] : 0));
+            }
+        }
+        data.flush();
+    }
+
+    static OpeningBook readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+            throw new IOException("Not an opening book");
+        }
+        int size = data.readInt();
+        int winLength = data.readInt();
+        int positions = data.readInt();
+        OpeningBook book = new OpeningBook(size, winLength, positions);
+        for (int p = 0; p < positions; p++) {
+            long key = data.readLong();
+            int count = data.readUnsignedByte();
+            int[] moves = new int[count];
+            int[] weights = new int[count];
+            for (int i = 0; i < count; i++) {
+                moves[i] = data.readUnsignedShort();
+                weights[i] = data.readInt();
+            }
+            book.put(key, moves, weights);
+        }
+        return book;
+    }
+
+    private void put(long key, int[] canonicalMoves, int[] weights) {
+        int slot = find(key);
+        if (storedMoves + canonicalMoves.length > moves.length) {
+            int capacity = Math.max(moves.length * 2, storedMoves + canonicalMoves.length);
+            moves = Arrays.copyOf(moves, capacity);
+            cumulativeWeights = Arrays.copyOf(cumulativeWeights, capacity);
+        }
+        keys[slot] = key;
+        firstMove[slot] = storedMoves + 1;
+        moveCount[slot] = (byte) canonicalMoves.length;
+        int total = 0;
+        for (int i = 0; i < canonicalMoves.length; i++) {
+            total += Math.max(weights[i], 1);
+            moves[storedMoves] = (short) canonicalMoves[i];
+            cumulativeWeights[storedMoves++] = total;
+        }
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (mixed ^ (mixed >>> 32)) & mask;
+        while (firstMove[slot] != 0 && keys[slot] != key) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    // Depth-first walk over the positions the statistics cover, each canonical position once
+    private static final class Builder {
+        final OpeningStats stats;
+        final int minGames;
+        final int topMoves;
+        long[] keys = new long[256];
+        int[] firstMove = new int[256];
+        int count;
+        int[] moves = new int[1024];
+        int[] weights = new int[1024];
+        int moveTotal;
+        final Set<Long> visited = new HashSet<>(); // canonical keys already walked; building is offline
+
+        Builder(OpeningStats stats, int minGames, int topMoves) {
+            this.stats = stats;
+            this.minGames = minGames;
+            this.topMoves = topMoves;
+        }
+
+        void visit(Board board, int ply) {
+            long key = board.canonicalKey();
+            if (ply >= stats.getMaxPly() || !visited.add(key)) return;
+
+            int side = board.getSideToMove();
+            int cells = board.getCellCount();
+            long[] childKeys = new long[cells];
+            int[] childSlots = new int[cells];
+            long[] childPoints = new long[cells];
+            long[] childGames = new long[cells];
+            int children = 0;
+            for (int slot = 0; slot < cells; slot++) {
+                if (!board.isSlotAvailable(slot)) continue;
+                int status = board.makeMove(slot);
+                long childKey = board.canonicalKey();
+                long games = stats.getGames(childKey);
+                boolean repeat = false;
+                for (int c = 0; c < children; c++) repeat |= childKeys[c] == childKey;
+                if (!repeat && games >= minGames) {
+                    childKeys[children] = childKey;
+                    childSlots[children] = slot;
+                    childGames[children] = games;
+                    childPoints[children++] = 2 * stats.getCount(childKey, side) + stats.getCount(childKey, Board.DRAW);
+                    if (status == Board.IN_PROGRESS) visit(board, ply + 1);
+                }
+                board.undoMove(slot);
+            }
+            if (children == 0) return;
+
+            // Keep the best topMoves by average points, selected without boxing
+            int kept = Math.min(children, topMoves);
+            for (int i = 0; i < kept; i++) {
+                int best = i;
+                for (int c = i + 1; c < children; c++) {
+                    if (childPoints[c] * childGames[best] > childPoints[best] * childGames[c]) best = c;
+                }
+                swap(childSlots, i, best);
+                swap(childPoints, i, best);
+                swap(childGames, i, best);
+            }
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+                firstMove = Arrays.copyOf(firstMove, count * 2);
+            }
+            if (moveTotal + kept > moves.length) {
+                moves = Arrays.copyOf(moves, Math.max(moves.length * 2, moveTotal + kept));
+                weights = Arrays.copyOf(weights, moves.length);
+            }
+            keys[count] = key;
+            firstMove[count++] = moveTotal;
+            for (int i = 0; i < kept; i++) {
+                moves[moveTotal] = board.toCanonical(childSlots[i]);
+                weights[moveTotal++] = (int) Math.min(Integer.MAX_VALUE / topMoves, childPoints[i]);
+            }
+        }
+
+        private static void swap(int[] values, int a, int b) {
+            int value = values[a];
+            values[a] = values[b];
+            values[b] = value;
+        }
+
+        private static void swap(long[] values, int a, int b) {
+            long value = values[a];
+            values[a] = values[b];
+            values[b] = value;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        // Arguments: statistics snapshot written by OpeningStats, book file, optional min games and top moves
+        if (args.length < 2) {
+            System.out.println("Usage: OpeningBook <stats snapshot> <book file> [minGames] [topMoves]");
+            return;
+        }
+        int minGames = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int topMoves = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        OpeningStats stats;
+        try (InputStream in = Files.newInputStream(Paths.get(args[0]))) {
+            stats = OpeningStats.readFrom(in);
+        }
+        OpeningBook book = build(stats, minGames, topMoves);
+        try (OutputStream out = Files.newOutputStream(Paths.get(args[1]))) {
+            book.writeTo(out);
+        }
+        System.out.printf("%d positions, %d moves written to %s%n", book.getPositionCount(), book.storedMoves, args[1]);
+    }
+}
@@ -0,0 +1,319 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// ----------- Opening statistics --------------
+// Win/draw/loss counts for every canonical position in the first maxPly moves of
+// archived games. Games are streamed straight out of a GameArchive in fork/join
+// chunks: each worker replays its chunk on its own Board into a thread-local
+// primitive map, then merges that map into the shared one and reuses it, so memory
+// stays fixed however many games are read. The shared map holds at most capacity
+// positions; positions first seen after it fills are counted as dropped. Games
+// archived unfinished (status IN_PROGRESS) have no outcome and are skipped.
+//
+// Snapshot file: int magic | int version | int size | int winLength | int maxPly |
+// int positions | positions x (long key | long first wins | long second wins | long draws),
+// sorted by key.
+public class OpeningStats {
+    private static final int MAGIC = 0x54545453; // "TTTS"
+    private static final int VERSION = 1;
+    private static final int CHUNK = 4096; // games a task replays without splitting further
+
+    private final int size;
+    private final int winLength;
+    private final int maxPly;
+    private final PositionCounts counts; // guarded by itself
+    private ThreadLocal<Worker> workers;
+    private long processedGames;
+    private long droppedPositions;
+    private long elapsedNanos;
+
+    public OpeningStats(int size, int winLength, int maxPly, int capacity) {
+        this.size = size;
+        this.winLength = winLength;
+        this.maxPly = maxPly;
+        this.counts = new PositionCounts(capacity);
+    }
+
+    /**
+     * Adds every game appended to archive since the previous call, so a
+     * growing archive can be aggregated incrementally.
+     */
+    public void aggregate(GameArchive archive, ForkJoinPool pool) {
+        long from = processedGames;
+        long to = archive.getGameCount();
+        if (workers == null) workers = ThreadLocal.withInitial(Worker::new);
+        long start = System.nanoTime();
+        pool.invoke(new ChunkTask(archive, from, to));
+        elapsedNanos += System.nanoTime() - start;
+        processedGames = to;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getWinLength() {
+        return winLength;
+    }
+
+    public int getMaxPly() {
+        return maxPly;
+    }
+
+    public long getProcessedGames() {
+        return processedGames;
+    }
+
+    public double getGamesPerSecond() {
+        return elapsedNanos == 0 ? 0 : processedGames * 1e9 / elapsedNanos;
+    }
+
+    public synchronized long getDroppedPositions() {
+        return droppedPositions;
+    }
+
+    public int getPositionCount() {
+        synchronized (counts) {
+            return counts.used;
+        }
+    }
+
+    // Games that reached the position with the given canonical key and ended with outcome
+    public long getCount(long key, int outcome) {
+        synchronized (counts) {
+            int slot = counts.find(key);
+            return counts.occupied[slot] ? counts.counts[slot * 3 + outcome] : 0;
+        }
+    }
+
+    public long getGames(long key) {
+        synchronized (counts) {
+            int slot = counts.find(key);
+            if (!counts.occupied[slot]) return 0;
+            return counts.counts[slot * 3] + counts.counts[slot * 3 + 1] + counts.counts[slot * 3 + 2];
+        }
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        synchronized (counts) {
+            long[] keys = new long[counts.used];
+            for (int i = 0; i < counts.used; i++) keys[i] = counts.keys[counts.usedSlots[i]];
+            Arrays.sort(keys);
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeInt(size);
+            data.writeInt(winLength);
+            data.writeInt(maxPly);
+            data.writeInt(keys.length);
+            for (long key : keys) {
+                int slot = counts.find(key);
+                data.writeLong(key);
+                for (int outcome = 0; outcome < 3; outcome++) data.writeLong(counts.counts[slot * 3 + outcome]);
+            }
+        }
+        data.flush();
+    }
+
+    static OpeningStats readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+            throw new IOException("Not an opening statistics snapshot");
+        }
+        int size = data.readInt();
+        int winLength = data.readInt();
+        int maxPly = data.readInt();
+        int positions = data.readInt();
+        OpeningStats stats = new OpeningStats(size, winLength, maxPly, Math.max(positions, 1));
+        for (int i = 0; i < positions; i++) {
+            long key = data.readLong();
+            for (int outcome = 0; outcome < 3; outcome++) stats.counts.add(key, outcome, data.readLong());
+        }
+        return stats;
+    }
+
+    private void merge(PositionCounts local) {
+        long dropped = 0;
+        synchronized (counts) {
+            for (int i = 0; i < local.used; i++) {
+                int slot = local.usedSlots[i];
+                for (int outcome = 0; outcome < 3; outcome++) {
+                    long count = local.counts[slot * 3 + outcome];
+                    if (count != 0 && !counts.add(local.keys[slot], outcome, count)) {
+                        dropped++;
+                        break;
+                    }
+                }
+            }
+        }
+        if (dropped != 0) {
+            synchronized (this) {
+                droppedPositions += dropped;
+            }
+        }
+        local.clear();
+    }
+
+    // Per-thread board and counters, reused for every chunk the thread replays
+    private class Worker {
+        final Board board = new Board(size, winLength);
+        final PositionCounts local = new PositionCounts(CHUNK * (maxPly + 1));
+
+        void replay(GameArchive archive, long from, long to) {
+            for (long game = from; game < to; game++) {
+                int outcome = archive.getStatus(game); // 0 or 1 for a win, DRAW is 2
+                if (outcome != 0 && outcome != 1 && outcome != Board.DRAW) continue;
+                int moves = Math.min(archive.getMoveCount(game), maxPly);
+                board.reset();
+                local.add(board.canonicalKey(), outcome, 1);
+                for (int ply = 0; ply < moves; ply++) {
+                    board.makeMove(archive.getMove(game, ply));
+                    local.add(board.canonicalKey(), outcome, 1);
+                }
+            }
+            merge(local);
+        }
+    }
+
+    private class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final GameArchive archive;
+        private final long from;
+        private final long to;
+
+        ChunkTask(GameArchive archive, long from, long to) {
+            this.archive = archive;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK) {
+                long middle = (from + to) >>> 1;
+                invokeAll(new ChunkTask(archive, from, middle), new ChunkTask(archive, middle, to));
+                return;
+            }
+            workers.get().replay(archive, from, to);
+        }
+    }
+
+    // Open-addressed map from position key to three outcome counters, at most capacity keys
+    private static final class PositionCounts {
+        final int capacity;
+        final long[] keys;
+        final boolean[] occupied;
+        final long[] counts; // [slot][outcome]
+        final int[] usedSlots; // occupied slots in insertion order, so clearing and merging skip empty ones
+        int used;
+
+        PositionCounts(int capacity) {
+            this.capacity = capacity;
+            int slots = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1) << 1;
+            this.keys = new long[slots];
+            this.occupied = new boolean[slots];
+            this.counts = new long[slots * 3];
+            this.usedSlots = new int[capacity];
+        }
+
+        // False when key is new and the map is full
+        boolean add(long key, int outcome, long amount) {
+            int slot = find(key);
+            if (!occupied[slot]) {
+                if (used == capacity) return false;
+                occupied[slot] = true;
+                keys[slot] = key;
+                usedSlots[used++] = slot;
+            }
+            counts[slot * 3 + outcome] += amount;
+            return true;
+        }
+
+        int find(long key) {
+            int mask = keys.length - 1;
+            long mixed = key * 0x9E3779B97F4A7C15L;
+            int slot = (int) (mixed ^ (mixed >>> 32)) & mask;
+            while (occupied[slot] && keys[slot] != key) slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        void clear() {
+            for (int i = 0; i < used; i++) {
+                int slot = usedSlots[i];
+                occupied[slot] = false;
+                counts[slot * 3] = 0;
+                counts[slot * 3 + 1] = 0;
+                counts[slot * 3 + 2] = 0;
+            }
+            used = 0;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        // Optional arguments: archive file, board size, win length, max ply and snapshot file.
+        // Without an archive, random self-play games are archived to a temporary file first.
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int winLength = args.length > 2 ? Integer.parseInt(args[2]) : Math.min(size, 5);
+        int maxPly = args.length > 3 ? Integer.parseInt(args[3]) : 6;
+        Path archiveFile = args.length > 0 ? Paths.get(args[0]) : selfPlayArchive(size, winLength, 1_000_000);
+
+        OpeningStats stats = new OpeningStats(size, winLength, maxPly, 1 << 22);
+        try (GameArchive archive = GameArchive.open(archiveFile, size, winLength)) {
+            stats.aggregate(archive, ForkJoinPool.commonPool());
+        }
+        System.out.printf("%d games, %d positions (%d dropped) at %.0f games/sec%n", stats.getProcessedGames(),
+            stats.getPositionCount(), stats.getDroppedPositions(), stats.getGamesPerSecond());
+
+        Board board = new Board(size, winLength);
+        List<Long> seen = new ArrayList<>();
+        System.out.println("First move: games / first wins / draws / second wins");
+        for (int slot = 0; slot < board.getCellCount(); slot++) {
+            board.makeMove(slot);
+            long key = board.canonicalKey();
+            if (!seen.contains(key) && stats.getGames(key) > 0) {
+                seen.add(key);
+                long games = stats.getGames(key);
+                System.out.printf("slot %3d %10d %6.1f%% %6.1f%% %6.1f%%%n", slot + 1, games,
+                    100.0 * stats.getCount(key, HeadlessGame.FIRST_WINS) / games,
+                    100.0 * stats.getCount(key, HeadlessGame.DRAW) / games,
+                    100.0 * stats.getCount(key, HeadlessGame.SECOND_WINS) / games);
+            }
+            board.undoMove(slot);
+        }
+        if (args.length > 4) {
+            try (OutputStream out = Files.newOutputStream(Paths.get(args[4]))) {
+                stats.writeTo(out);
+            }
+        }
+    }
+
+    private static Path selfPlayArchive(int size, int winLength, int games) throws IOException {
+        Path file = Files.createTempFile("games", ".archive");
+        file.toFile().deleteOnExit();
+        Files.delete(file);
+        HeadlessGame game = new HeadlessGame(size, winLength);
+        Player first = new RandomPlayer("Player 1", "X", 1);
+        Player second = new RandomPlayer("Player 2", "O", 2);
+        try (GameArchive archive = GameArchive.open(file, size, winLength)) {
+            MoveLog log = new MoveLog();
+            game.setLog(log);
+            for (int i = 0; i < games; i++) {
+                game.play(first, second);
+                if (log.getGameCount() == 4096 || i == games - 1) {
+                    for (int g = 0; g < log.getGameCount(); g++) archive.append(log.getGame(g));
+                    log = new MoveLog();
+                    game.setLog(log);
+                }
+            }
+        }
+        return file;
+    }
+}
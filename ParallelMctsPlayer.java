@@ -0,0 +1,365 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// ----------- Parallel Monte Carlo tree search --------------
+// Runs UCT on several threads, each on its own copy of the board, in one of two modes:
+//   ROOT  every thread grows an independent MctsPlayer tree and the root visit
+//         counts are summed at the end; no shared state while searching
+//   TREE  all threads grow one shared tree. Visit and score counters are atomic
+//         arrays, and a thread passing through a node adds a virtual loss to it
+//         until its playout is backed up, steering the others to different lines.
+//         A node is expanded by whichever thread wins a CAS on its child link, in
+//         that thread's random order; threads that lose play out from the node
+//         instead of waiting. Each selection also starts its scan of the children
+//         at a random one, so threads reaching a fresh node try different replies.
+public class ParallelMctsPlayer extends Player {
+    enum Mode { ROOT, TREE }
+
+    private static final int VIRTUAL_LOSS = 3; // visits added, without score, while a playout is in flight
+    private static final int DEFAULT_NODES = 1 << 22;
+    private static final int UNEXPANDED = -1;
+    private static final int EXPANDING = -2; // another thread is creating the children
+    private static final int FULL = -3;      // the pool had no room; the node stays a leaf
+
+    private final Mode mode;
+    private final int threads;
+    private final long budgetNanos; // 0 for no time limit
+    private final long maxPlayouts; // 0 for no playout limit
+    private final ForkJoinPool pool;
+
+    // ROOT mode
+    private final MctsPlayer[] searchers;
+    private final Board[] copies;
+    private long[] rootVisits = new long[0];
+
+    // TREE mode node pool; node 0 is the root. Plain arrays are written before the
+    // node's child link is published through firstChild, which orders them.
+    private final int[] nodeMove;
+    private final int[] childCount;
+    private final AtomicIntegerArray firstChild;
+    private final AtomicIntegerArray visits;
+    private final AtomicLongArray score; // half points: 2 per win, 1 per draw, for the side that played nodeMove
+    private final AtomicInteger nodeCount = new AtomicInteger();
+    private final AtomicLong claimedPlayouts = new AtomicLong();
+    private final TreeWorker[] workers;
+
+    private long playouts;
+    private long elapsedNanos;
+
+    // Tree-parallel on every core, with MctsPlayer's default budgets
+    public ParallelMctsPlayer(String name, String symbol) {
+        this(name, symbol, Mode.TREE, Runtime.getRuntime().availableProcessors(), 1_000_000_000L, 20_000);
+    }
+
+    public ParallelMctsPlayer(String name, String symbol, Mode mode, int threads, long budgetNanos, long maxPlayouts) {
+        this(name, symbol, mode, threads, budgetNanos, maxPlayouts, DEFAULT_NODES);
+    }
+
+    public ParallelMctsPlayer(String name, String symbol, Mode mode, int threads, long budgetNanos, long maxPlayouts,
+                              int maxNodes) {
+        super(name, symbol);
+        if (budgetNanos <= 0 && maxPlayouts <= 0) {
+            throw new IllegalArgumentException("A time or playout budget is required");
+        }
+        this.mode = mode;
+        this.threads = threads;
+        this.budgetNanos = budgetNanos;
+        this.maxPlayouts = maxPlayouts;
+        this.pool = new ForkJoinPool(threads);
+
+        boolean tree = mode == Mode.TREE;
+        this.searchers = new MctsPlayer[tree ? 0 : threads];
+        for (int t = 0; t < searchers.length; t++) {
+            long share = maxPlayouts <= 0 ? 0 : (maxPlayouts + threads - 1) / threads;
+            searchers[t] = new MctsPlayer(name, symbol, budgetNanos, share, maxNodes / threads);
+        }
+        this.copies = new Board[searchers.length];
+        int nodes = tree ? maxNodes : 0;
+        this.nodeMove = new int[nodes];
+        this.childCount = new int[nodes];
+        this.firstChild = new AtomicIntegerArray(nodes);
+        this.visits = new AtomicIntegerArray(nodes);
+        this.score = new AtomicLongArray(nodes);
+        this.workers = new TreeWorker[tree ? threads : 0];
+        for (int t = 0; t < workers.length; t++) workers[t] = new TreeWorker(System.nanoTime() + t);
+    }
+
+    @Override
+    public int getMove(Board board) {
+        long start = System.nanoTime();
+        int move = mode == Mode.ROOT ? searchRoots(board) : searchTree(board);
+        elapsedNanos = System.nanoTime() - start;
+        return move;
+    }
+
+    // Playouts run by all threads in the last getMove call
+    public long getPlayoutCount() {
+        return playouts;
+    }
+
+    public double getPlayoutsPerSecond() {
+        return playouts * 1e9 / Math.max(elapsedNanos, 1);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    // Releases the search threads
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private int searchRoots(Board board) {
+        List<Callable<Void>> tasks = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            if (copies[t] == null || copies[t].getSize() != board.getSize()
+                    || copies[t].getWinLength() != board.getWinLength()) {
+                copies[t] = new Board(board.getSize(), board.getWinLength());
+            }
+            Board copy = copies[t];
+            MctsPlayer searcher = searchers[t];
+            copy.copyFrom(board);
+            tasks.add(() -> {
+                searcher.getMove(copy);
+                return null;
+            });
+        }
+        pool.invokeAll(tasks);
+
+        if (rootVisits.length < board.getCellCount()) rootVisits = new long[board.getCellCount()];
+        Arrays.fill(rootVisits, 0);
+        playouts = 0;
+        for (MctsPlayer searcher : searchers) {
+            searcher.addRootVisits(rootVisits);
+            playouts += searcher.getPlayoutCount();
+        }
+        int best = MctsPlayer.firstFreeSlot(board);
+        for (int slot = 0; slot < board.getCellCount(); slot++) {
+            if (rootVisits[slot] > rootVisits[best]) best = slot;
+        }
+        return best;
+    }
+
+    private int searchTree(Board board) {
+        nodeCount.set(0);
+        claimedPlayouts.set(0);
+        allocate(-1);
+        TreeWorker first = workers[0];
+        first.prepare(board);
+        if (!expand(first, 0)) return MctsPlayer.firstFreeSlot(board);
+
+        long deadline = System.nanoTime() + budgetNanos;
+        List<Callable<Void>> tasks = new ArrayList<>(threads);
+        for (TreeWorker worker : workers) {
+            worker.prepare(board);
+            tasks.add(() -> {
+                worker.run(deadline);
+                return null;
+            });
+        }
+        pool.invokeAll(tasks);
+
+        playouts = 0;
+        for (TreeWorker worker : workers) playouts += worker.playouts;
+        int best = firstChild.get(0);
+        for (int child = firstChild.get(0); child < firstChild.get(0) + childCount[0]; child++) {
+            if (visits.get(child) > visits.get(best)) best = child;
+        }
+        return nodeMove[best];
+    }
+
+    private int allocate(int move) {
+        int node = nodeCount.getAndIncrement();
+        nodeMove[node] = move;
+        childCount[node] = 0;
+        visits.set(node, 0);
+        score.set(node, 0);
+        firstChild.set(node, UNEXPANDED);
+        return node;
+    }
+
+    // Creates node's children in worker's random order if it wins the race to do so
+    private boolean expand(TreeWorker worker, int node) {
+        if (!firstChild.compareAndSet(node, UNEXPANDED, EXPANDING)) return false;
+        int[] moves = worker.empties;
+        int count = MctsPlayer.candidateMoves(worker.board, moves);
+        worker.shuffle(moves, count);
+        int base = nodeCount.getAndAdd(count);
+        if (base + count > nodeMove.length) {
+            firstChild.set(node, FULL);
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            int child = base + i;
+            nodeMove[child] = moves[i];
+            childCount[child] = 0;
+            visits.set(child, 0);
+            score.set(child, 0);
+            firstChild.set(child, UNEXPANDED);
+        }
+        childCount[node] = count;
+        firstChild.set(node, base); // publishes the children
+        return true;
+    }
+
+    // Per-thread board copy, buffers and random state for the shared tree
+    private final class TreeWorker {
+        private Board board;
+        private int[] path = new int[0];
+        private int[] pathMoves = new int[0];
+        private int[] empties = new int[0];
+        private int[] playoutMoves = new int[0];
+        private long random;
+        long playouts;
+
+        TreeWorker(long seed) {
+            this.random = seed | 1;
+        }
+
+        void prepare(Board source) {
+            if (board == null || board.getSize() != source.getSize() || board.getWinLength() != source.getWinLength()) {
+                board = new Board(source.getSize(), source.getWinLength());
+                int cells = source.getCellCount();
+                path = new int[cells + 1];
+                pathMoves = new int[cells];
+                empties = new int[cells];
+                playoutMoves = new int[cells];
+            }
+            board.copyFrom(source);
+            playouts = 0;
+        }
+
+        void run(long deadline) {
+            int rootSide = board.getSideToMove();
+            while (true) {
+                if (maxPlayouts > 0 && claimedPlayouts.getAndIncrement() >= maxPlayouts) return;
+                if (budgetNanos > 0 && playouts % MctsPlayer.TIME_CHECK_INTERVAL == 0
+                        && System.nanoTime() >= deadline) {
+                    return;
+                }
+                iterate(rootSide);
+                playouts++;
+            }
+        }
+
+        private void iterate(int rootSide) {
+            int node = 0;
+            int depth = 0;
+            int status = Board.IN_PROGRESS;
+            path[0] = 0;
+            while (status == Board.IN_PROGRESS) {
+                int first = firstChild.get(node);
+                if (first == UNEXPANDED) {
+                    if (node != 0 && visits.get(node) <= VIRTUAL_LOSS) break; // first visit: play out from here
+                    if (!expand(this, node)) break;
+                    first = firstChild.get(node);
+                }
+                if (first < 0) break; // being expanded elsewhere, or no room
+                node = select(node, first);
+                visits.addAndGet(node, VIRTUAL_LOSS);
+                pathMoves[depth] = nodeMove[node];
+                path[++depth] = node;
+                status = board.makeMove(nodeMove[node]);
+            }
+
+            int played = 0;
+            if (status == Board.IN_PROGRESS) {
+                played = playout();
+                status = board.getStatus();
+            }
+            for (int i = played - 1; i >= 0; i--) board.undoMove(playoutMoves[i]);
+
+            // Node at depth d was reached by a move of the root side when d is odd
+            for (int d = depth; d >= 0; d--) {
+                int mover = (d & 1) == 1 ? rootSide : 1 - rootSide;
+                visits.addAndGet(path[d], d > 0 ? 1 - VIRTUAL_LOSS : 1);
+                score.addAndGet(path[d], status == mover ? 2 : status == Board.DRAW ? 1 : 0);
+                if (d > 0) board.undoMove(pathMoves[d - 1]);
+            }
+        }
+
+        private int select(int node, int first) {
+            double logParent = Math.log(Math.max(visits.get(node), 1));
+            int count = childCount[node];
+            int offset = (int) ((nextRandom() >>> 33) % count); // staggers threads over untried children
+            int best = first;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < count; i++) {
+                int child = first + (offset + i) % count;
+                int n = visits.get(child);
+                if (n == 0) return child;
+                double value = score.get(child) / (2.0 * n) + MctsPlayer.EXPLORATION * Math.sqrt(logParent / n);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        // Random moves to the end of the game; returns how many were played
+        private int playout() {
+            int cells = board.getCellCount();
+            int free = 0;
+            for (int index = 0; index < cells; index++) {
+                if (board.isSlotAvailable(index)) empties[free++] = index;
+            }
+            int played = 0;
+            int status = Board.IN_PROGRESS;
+            while (status == Board.IN_PROGRESS) {
+                int pick = (int) ((nextRandom() >>> 33) % free);
+                int move = empties[pick];
+                empties[pick] = empties[--free];
+                playoutMoves[played++] = move;
+                status = board.makeMove(move);
+            }
+            return played;
+        }
+
+        void shuffle(int[] values, int count) {
+            for (int i = count - 1; i > 0; i--) {
+                int j = (int) ((nextRandom() >>> 33) % (i + 1));
+                int value = values[i];
+                values[i] = values[j];
+                values[j] = value;
+            }
+        }
+
+        // xorshift64*
+        private long nextRandom() {
+            random ^= random >>> 12;
+            random ^= random << 25;
+            random ^= random >>> 27;
+            return random * 0x2545F4914F6CDD1DL;
+        }
+    }
+
+    public static void main(String[] args) {
+        // Optional arguments: board size, win length, milliseconds per move and the most threads to try
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 15;
+        int winLength = args.length > 1 ? Integer.parseInt(args[1]) : Math.min(size, 5);
+        long budgetNanos = (args.length > 2 ? Long.parseLong(args[2]) : 1000) * 1_000_000L;
+        int maxThreads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        Board board = new Board(size, winLength);
+        board.makeMove(board.getCellCount() / 2);
+        for (Mode mode : Mode.values()) {
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                ParallelMctsPlayer player = new ParallelMctsPlayer("bot", "O", mode, threads, budgetNanos, 0);
+                player.getMove(board); // warm-up
+                player.getMove(board);
+                System.out.printf("%-4s %3d threads: %,12.0f playouts/sec%n", mode, threads,
+                    player.getPlayoutsPerSecond());
+                player.shutdown();
+            }
+        }
+    }
+}
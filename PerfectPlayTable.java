@@ -0,0 +1,132 @@
+import java.io.*;
+
+// ----------- Perfect-play table for 3x3 --------------
+// Solved value and best move for every reachable canonical 3x3 position.
+// Entries are indexed by the base-3 encoding of the canonical position
+// (0 empty, 1 first player, 2 second player per slot), one byte each:
+// value in the high nibble, best move in canonical orientation in the low one.
+// Run main to regenerate the classpath resource.
+public class PerfectPlayTable {
+    static final String RESOURCE = "perfect3x3.bin";
+    static final int SIZE = 19683; // 3^9
+    static final int LOSS = 1;
+    static final int DRAW = 2;
+    static final int WIN = 3;
+
+    // Base-3 weight of a 9-bit occupancy mask
+    private static final int[] TERNARY = new int[512];
+
+    static {
+        for (int mask = 0; mask < 512; mask++) {
+            int value = 0;
+            for (int bit = 8, weight = 6561; bit >= 0; bit--, weight /= 3) {
+                if ((mask & (1 << bit)) != 0) value += weight;
+            }
+            TERNARY[mask] = value;
+        }
+    }
+
+    private static volatile PerfectPlayTable instance;
+
+    private final byte[] entries;
+
+    private PerfectPlayTable(byte[] entries) {
+        this.entries = entries;
+    }
+
+    // Loads the table from the classpath, solving it in memory if the resource is missing
+    static PerfectPlayTable get() {
+        PerfectPlayTable table = instance;
+        if (table == null) {
+            synchronized (PerfectPlayTable.class) {
+                table = instance;
+                if (table == null) {
+                    byte[] entries = load();
+                    table = new PerfectPlayTable(entries != null ? entries : generate());
+                    instance = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    // Best move on board for the side to move, or -1 if the position is not in play
+    int bestMove(Board board) {
+        int entry = entry(board);
+        return entry == 0 ? -1 : board.fromCanonical(entry & 0xF);
+    }
+
+    // LOSS, DRAW or WIN for the side to move, or 0 if the position is not in play
+    int value(Board board) {
+        return entry(board) >>> 4;
+    }
+
+    private int entry(Board board) {
+        long key = board.canonicalKey();
+        return entries[TERNARY[(int) (key >>> 32)] + 2 * TERNARY[(int) key & 0x1FF]] & 0xFF;
+    }
+
+    private static byte[] load() {
+        try (InputStream in = PerfectPlayTable.class.getResourceAsStream("/" + RESOURCE)) {
+            if (in == null) return null;
+            byte[] entries = in.readAllBytes();
+            return entries.length == SIZE ? entries : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    static byte[] generate() {
+        byte[] entries = new byte[SIZE];
+        solve(new Board(), entries);
+        return entries;
+    }
+
+    // Scores the position for the side to move, quicker wins and slower losses scoring higher
+    private static int solve(Board board, byte[] entries) {
+        long key = board.canonicalKey();
+        int index = TERNARY[(int) (key >>> 32)] + 2 * TERNARY[(int) key & 0x1FF];
+        int orientation = board.canonicalSymmetry();
+        int side = board.getSideToMove();
+        int best = Integer.MIN_VALUE;
+        int bestMove = -1;
+        for (int move = 0; move < 9; move++) {
+            if (!board.isSlotAvailable(move)) continue;
+            int status = board.makeMove(move);
+            int score;
+            if (status == side) {
+                score = 10 - board.getMoveCount();
+            } else if (status == Board.DRAW) {
+                score = 0;
+            } else {
+                score = -solve(board, entries);
+            }
+            board.undoMove(move);
+            if (score > best) {
+                best = score;
+                bestMove = move;
+            }
+        }
+
+        int value = best > 0 ? WIN : best < 0 ? LOSS : DRAW;
+        int canonicalMove = BoardSymmetry.forSize(3).permutation[orientation][bestMove];
+        entries[index] = (byte) (value << 4 | canonicalMove);
+        return best;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String path = args.length > 0 ? args[0] : RESOURCE;
+        long start = System.nanoTime();
+        byte[] entries = generate();
+        long elapsed = System.nanoTime() - start;
+
+        try (OutputStream out = new FileOutputStream(path)) {
+            out.write(entries);
+        }
+        int positions = 0;
+        for (byte entry : entries) {
+            if (entry != 0) positions++;
+        }
+        System.out.println("Solved " + positions + " canonical positions in " + elapsed / 1_000_000 + " ms, wrote " + path);
+    }
+}
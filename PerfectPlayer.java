@@ -0,0 +1,23 @@
+// ----------- Table-driven perfect player --------------
+// Answers 3x3 moves with one lookup in the precomputed PerfectPlayTable.
+// Other board sizes fall back to a searching ComputerPlayer.
+class PerfectPlayer extends Player {
+    private final PerfectPlayTable table = PerfectPlayTable.get();
+    private ComputerPlayer fallback;
+
+    public PerfectPlayer(String name, String symbol) {
+        super(name, symbol);
+    }
+
+    @Override
+    public int getMove(Board board) {
+        if (board.getSize() == 3 && board.getWinLength() == 3) {
+            int move = table.bestMove(board);
+            if (move >= 0) return move;
+        }
+        if (fallback == null) {
+            fallback = new ComputerPlayer(name, symbol);
+        }
+        return fallback.getMove(board);
+    }
+}
@@ -0,0 +1,323 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+// ----------- Depth-first proof-number solver --------------
+// Finds the game-theoretic value of a position with df-pn (Nagai's depth-first
+// proof-number search), run twice: once to prove a win for the side to move and,
+// failing that, once to prove a win for the opponent. Neither proven is a draw.
+//
+// Each node keeps (phi, delta): proof and disproof numbers seen from the side to move,
+// so a node's phi is the smallest delta of its children and its delta is the sum of
+// their phis. Children that are the same position under rotation or reflection are
+// merged, and the table is keyed by Board.canonicalKey(), so every symmetric
+// position is solved once. The table has a fixed number of entries; a full bucket
+// drops the entry whose subtree took the least work to compute.
+//
+// The table is written to a checkpoint file at intervals and read back on start, so a
+// long solve that is stopped resumes from where the last checkpoint left it.
+public class ProofNumberSolver {
+    static final int INFINITY = Integer.MAX_VALUE / 2;
+    private static final int BUCKET = 4;
+    private static final int MAGIC = 0x5454504E; // "TTPN"
+    private static final int VERSION = 1;
+
+    private final int size;
+    private final int winLength;
+    private final Path checkpoint;       // null to never checkpoint
+    private final long checkpointNanos;
+
+    // Table: entries with work 0 are empty
+    private final long[] keys;
+    private final int[] phis;
+    private final int[] deltas;
+    private final int[] works;
+    private int used;
+
+    // Per-ply child buffers
+    private final int[][] childMoves;
+    private final long[][] childKeys;
+    private final int[][] childPhi;
+    private final int[][] childDelta;
+
+    private int target;           // side whose win is being proven
+    private int phase;            // 0 proving a win for the side to move, 1 for the opponent
+    private int firstPhaseResult; // 1 proven, 0 not proven, -1 not run yet
+    private long nodes;
+    private long startNanos;
+    private long startNodes; // nodes restored from a checkpoint, left out of the rate
+    private long lastCheckpointNanos;
+    private long progressInterval;
+    private int rootPhi;
+    private int rootDelta;
+    private int returnedPhi;
+    private int returnedDelta;
+
+    public ProofNumberSolver(int size, int winLength, int tableEntries, Path checkpoint, long checkpointNanos) {
+        this.size = size;
+        this.winLength = winLength;
+        this.checkpoint = checkpoint;
+        this.checkpointNanos = checkpointNanos;
+        int capacity = Integer.highestOneBit(Math.max(tableEntries, BUCKET));
+        this.keys = new long[capacity];
+        this.phis = new int[capacity];
+        this.deltas = new int[capacity];
+        this.works = new int[capacity];
+        int cells = size * size;
+        this.childMoves = new int[cells + 1][cells];
+        this.childKeys = new long[cells + 1][cells];
+        this.childPhi = new int[cells + 1][cells];
+        this.childDelta = new int[cells + 1][cells];
+    }
+
+    // Prints a progress line every interval nodes; 0 is silent
+    public void setProgressInterval(long interval) {
+        this.progressInterval = interval;
+    }
+
+    /**
+     * Value of position with both sides playing perfectly: the side that wins
+     * (0 first player, 1 second) or Board.DRAW. Resumes from the checkpoint
+     * file when one exists for the same board.
+     */
+    public int solve(Board position) throws IOException {
+        if (position.getSize() != size || position.getWinLength() != winLength) {
+            throw new IllegalArgumentException("Solver is for " + size + "x" + size + " boards with " + winLength
+                + " in a row");
+        }
+        if (position.getStatus() != Board.IN_PROGRESS) return position.getStatus();
+        int mover = position.getSideToMove();
+        phase = 0;
+        firstPhaseResult = -1;
+        if (checkpoint != null && Files.exists(checkpoint)) restore();
+        startNanos = System.nanoTime();
+        startNodes = nodes;
+        lastCheckpointNanos = startNanos;
+
+        if (phase == 0) {
+            target = mover;
+            firstPhaseResult = prove(position) ? 1 : 0;
+            if (firstPhaseResult == 1) return finish(mover);
+            phase = 1;
+            clearTable();
+        }
+        target = 1 - mover;
+        return finish(prove(position) ? 1 - mover : Board.DRAW);
+    }
+
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    public int getTableEntries() {
+        return used;
+    }
+
+    public double getNodesPerSecond() {
+        return (nodes - startNodes) * 1e9 / Math.max(System.nanoTime() - startNanos, 1);
+    }
+
+    private int finish(int result) throws IOException {
+        if (checkpoint != null) Files.deleteIfExists(checkpoint);
+        return result;
+    }
+
+    // True when target can force a win from position
+    private boolean prove(Board position) throws IOException {
+        search(position, 0, INFINITY - 1, INFINITY - 1);
+        int proofNumber = position.getSideToMove() == target ? returnedPhi : returnedDelta;
+        return proofNumber == 0;
+    }
+
+    // Expands the node until its phi or delta reaches a threshold, then stores it
+    private void search(Board board, int ply, int phiThreshold, int deltaThreshold) throws IOException {
+        nodes++;
+        if (progressInterval > 0 && nodes % progressInterval == 0) printProgress();
+        if (checkpoint != null && (nodes & 0xFFFF) == 0 && System.nanoTime() - lastCheckpointNanos >= checkpointNanos) {
+            writeCheckpoint();
+        }
+
+        int count = generateChildren(board, ply);
+        long key = board.canonicalKey();
+        int[] moves = childMoves[ply];
+        int[] phi = childPhi[ply];
+        int[] delta = childDelta[ply];
+        long workBefore = nodes;
+        while (true) {
+            int nodePhi = INFINITY;
+            int nodeDelta = 0;
+            int best = -1;
+            int secondDelta = INFINITY;
+            for (int i = 0; i < count; i++) {
+                nodeDelta = Math.min(INFINITY, nodeDelta + phi[i]);
+                if (delta[i] < nodePhi) {
+                    secondDelta = nodePhi;
+                    nodePhi = delta[i];
+                    best = i;
+                } else if (delta[i] < secondDelta) {
+                    secondDelta = delta[i];
+                }
+            }
+            if (ply == 0) {
+                rootPhi = nodePhi;
+                rootDelta = nodeDelta;
+            }
+            if (nodePhi >= phiThreshold || nodeDelta >= deltaThreshold) {
+                store(key, nodePhi, nodeDelta, nodes - workBefore + 1);
+                returnedPhi = nodePhi;
+                returnedDelta = nodeDelta;
+                return;
+            }
+            int childPhiThreshold = deltaThreshold - nodeDelta + phi[best];
+            int childDeltaThreshold = Math.min(phiThreshold, secondDelta + 1);
+            board.makeMove(moves[best]);
+            search(board, ply + 1, childPhiThreshold, childDeltaThreshold);
+            board.undoMove(moves[best]);
+            phi[best] = returnedPhi;
+            delta[best] = returnedDelta;
+        }
+    }
+
+    // Lists the distinct children of the position with their known or initial numbers
+    private int generateChildren(Board board, int ply) {
+        int mover = board.getSideToMove();
+        int count = 0;
+        for (int slot = 0; slot < board.getCellCount(); slot++) {
+            if (!board.isSlotAvailable(slot)) continue;
+            int status = board.makeMove(slot);
+            long childKey = board.canonicalKey();
+            boolean duplicate = false;
+            for (int i = 0; i < count && !duplicate; i++) duplicate = childKeys[ply][i] == childKey;
+            if (!duplicate) {
+                childMoves[ply][count] = slot;
+                childKeys[ply][count] = childKey;
+                if (status == mover) {
+                    // The child's side to move has lost
+                    childPhi[ply][count] = INFINITY;
+                    childDelta[ply][count] = 0;
+                } else if (status == Board.DRAW) {
+                    // Not a win for target, whoever is to move
+                    boolean targetToMove = 1 - mover == target;
+                    childPhi[ply][count] = targetToMove ? INFINITY : 0;
+                    childDelta[ply][count] = targetToMove ? 0 : INFINITY;
+                } else {
+                    int entry = find(childKey);
+                    childPhi[ply][count] = entry >= 0 ? phis[entry] : 1;
+                    childDelta[ply][count] = entry >= 0 ? deltas[entry] : 1;
+                }
+                count++;
+            }
+            board.undoMove(slot);
+        }
+        return count;
+    }
+
+    private int find(long key) {
+        int base = bucketOf(key);
+        for (int i = base; i < base + BUCKET; i++) {
+            if (works[i] != 0 && keys[i] == key) return i;
+        }
+        return -1;
+    }
+
+    // Overwrites the same key, else an empty slot, else the entry with the least work
+    private void store(long key, int phi, int delta, long work) {
+        int base = bucketOf(key);
+        int victim = base;
+        for (int i = base; i < base + BUCKET; i++) {
+            if (works[i] != 0 && keys[i] == key) {
+                victim = i;
+                work += works[i];
+                break;
+            }
+            if (works[victim] != 0 && (works[i] == 0 || works[i] < works[victim])) victim = i;
+        }
+        if (works[victim] == 0) used++;
+        keys[victim] = key;
+        phis[victim] = phi;
+        deltas[victim] = delta;
+        works[victim] = (int) Math.min(Integer.MAX_VALUE, Math.max(work, 1));
+    }
+
+    private int bucketOf(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & (keys.length - 1) & ~(BUCKET - 1);
+    }
+
+    private void clearTable() {
+        Arrays.fill(works, 0);
+        used = 0;
+    }
+
+    private void printProgress() {
+        System.out.printf("phase %d: %,d nodes, %,.0f nodes/s, table %,d/%,d, root phi %d delta %d%n", phase, nodes,
+            getNodesPerSecond(), used, keys.length, rootPhi, rootDelta);
+    }
+
+    // Written to a temporary file and moved into place, so a crash mid-write keeps the previous checkpoint
+    private void writeCheckpoint() throws IOException {
+        Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            out.writeInt(winLength);
+            out.writeInt(keys.length);
+            out.writeInt(phase);
+            out.writeInt(firstPhaseResult);
+            out.writeLong(nodes);
+            for (int i = 0; i < keys.length; i++) {
+                if (works[i] == 0) continue;
+                out.writeInt(i);
+                out.writeLong(keys[i]);
+                out.writeInt(phis[i]);
+                out.writeInt(deltas[i]);
+                out.writeInt(works[i]);
+            }
+            out.writeInt(-1);
+        }
+        Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lastCheckpointNanos = System.nanoTime();
+    }
+
+    private void restore() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpoint)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != size || in.readInt() != winLength
+                    || in.readInt() != keys.length) {
+                throw new IOException(checkpoint + " is a checkpoint of a different solve");
+            }
+            phase = in.readInt();
+            firstPhaseResult = in.readInt();
+            nodes = in.readLong();
+            clearTable();
+            for (int i = in.readInt(); i >= 0; i = in.readInt()) {
+                keys[i] = in.readLong();
+                phis[i] = in.readInt();
+                deltas[i] = in.readInt();
+                works[i] = in.readInt();
+                used++;
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        // Optional arguments: board size, win length, table entries, checkpoint file and seconds between checkpoints
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int winLength = args.length > 1 ? Integer.parseInt(args[1]) : size;
+        int entries = args.length > 2 ? Integer.parseInt(args[2]) : 1 << 24;
+        Path checkpoint = Paths.get(args.length > 3 ? args[3] : "pn-" + size + "x" + size + "-" + winLength + ".ckpt");
+        long checkpointSeconds = args.length > 4 ? Long.parseLong(args[4]) : 60;
+
+        ProofNumberSolver solver = new ProofNumberSolver(size, winLength, entries, checkpoint,
+            checkpointSeconds * 1_000_000_000L);
+        solver.setProgressInterval(1_000_000);
+        long start = System.nanoTime();
+        int value = solver.solve(new Board(size, winLength));
+        String result = value == Board.DRAW ? "draw" : value == 0 ? "first player wins" : "second player wins";
+        System.out.printf("%dx%d with %d in a row: %s (%,d nodes in %.1f s)%n", size, size, winLength, result,
+            solver.getNodeCount(), (System.nanoTime() - start) / 1e9);
+    }
+}
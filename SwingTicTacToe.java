@@ -3,18 +3,28 @@ import java.awt.*;
 import java.awt.event.*;
 
 public class SwingTicTacToe extends JFrame implements ActionListener {
-    JButton[][] buttons = new JButton[3][3];
+    JButton[][] buttons;
+    Board board;
+    int size;
     String currentPlayer = "X";
 
     public SwingTicTacToe() {
+        this(3, 3);
+    }
+
+    public SwingTicTacToe(int size, int winLength) {
+        this.size = size;
+        this.board = new Board(size, winLength);
+        this.buttons = new JButton[size][size];
+
         setTitle("Tic Tac Toe");
-        setSize(300, 300);
-        setLayout(new GridLayout(3, 3));
+        setSize(100 * Math.min(size, 9), 100 * Math.min(size, 9));
+        setLayout(new GridLayout(size, size));
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
-        Font font = new Font("Arial", Font.BOLD, 40);
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
+        Font font = new Font("Arial", Font.BOLD, size <= 3 ? 40 : 120 / size + 8);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
                 buttons[i][j] = new JButton("");
                 buttons[i][j].setFont(font);
                 buttons[i][j].addActionListener(this);
@@ -30,51 +40,24 @@ public class SwingTicTacToe extends JFrame implements ActionListener {
         if (!btn.getText().equals("")) return;
 
         btn.setText(currentPlayer);
-        if (checkWinner()) {
-            JOptionPane.showMessageDialog(this, currentPlayer + " wins!");
-            disableBoard();
-        } else if (isBoardFull()) {
+        String result = board.placeMark(indexOf(btn), currentPlayer);
+        if (result == null) {
+            currentPlayer = currentPlayer.equals("X") ? "O" : "X";
+        } else if (result.equals("draw")) {
             JOptionPane.showMessageDialog(this, "It's a draw!");
         } else {
-            currentPlayer = currentPlayer.equals("X") ? "O" : "X";
-        }
-    }
-
-    private boolean checkWinner() {
-        for (int i = 0; i < 3; i++) {
-            // rows
-            if (!buttons[i][0].getText().equals("") &&
-                buttons[i][0].getText().equals(buttons[i][1].getText()) &&
-                buttons[i][1].getText().equals(buttons[i][2].getText()))
-                return true;
-            // columns
-            if (!buttons[0][i].getText().equals("") &&
-                buttons[0][i].getText().equals(buttons[1][i].getText()) &&
-                buttons[1][i].getText().equals(buttons[2][i].getText()))
-                return true;
+            JOptionPane.showMessageDialog(this, currentPlayer + " wins!");
+            disableBoard();
         }
-
-        // diagonals
-        if (!buttons[0][0].getText().equals("") &&
-            buttons[0][0].getText().equals(buttons[1][1].getText()) &&
-            buttons[1][1].getText().equals(buttons[2][2].getText()))
-            return true;
-
-        if (!buttons[0][2].getText().equals("") &&
-            buttons[0][2].getText().equals(buttons[1][1].getText()) &&
-            buttons[1][1].getText().equals(buttons[2][0].getText()))
-            return true;
-
-        return false;
     }
 
-    private boolean isBoardFull() {
-        for (JButton[] row : buttons) {
-            for (JButton btn : row) {
-                if (btn.getText().equals("")) return false;
+    private int indexOf(JButton btn) {
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (buttons[i][j] == btn) return i * size + j;
             }
         }
-        return true;
+        throw new IllegalArgumentException("Unknown button");
     }
 
     private void disableBoard() {
@@ -86,6 +69,9 @@ public class SwingTicTacToe extends JFrame implements ActionListener {
     }
 
     public static void main(String[] args) {
-        new SwingTicTacToe();
+        // Optional arguments: board size and marks in a row needed to win
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int winLength = args.length > 1 ? Integer.parseInt(args[1]) : Math.min(size, 5);
+        new SwingTicTacToe(size, winLength);
     }
 }
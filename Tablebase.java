@@ -0,0 +1,343 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// ----------- Endgame tablebase --------------
+// Solved value and distance to the result for every position with at most maxEmpty
+// empty slots, on boards of up to 64 slots. Marks are only ever added, so positions
+// are solved in layers by empty count: layer 0 (full boards) first, then each layer
+// from the one below it, with every layer split across a fork/join pool.
+//
+// A position with e empty slots is indexed by the rank of its empty set among all
+// e-subsets of the board, times the number of ways to place the first player's marks,
+// plus the rank of those marks among the filled slots; the marks left over belong to
+// the second player. One byte per position: distance << 2 | value, where value is
+// LOSS, DRAW or WIN for the side to move as in PerfectPlayTable (0 if unreachable)
+// and distance is the number of moves to the end of the game with perfect play.
+//
+// File: int magic | int version | int size | int winLength | int maxEmpty | padding to
+// 32 bytes | layers 0..maxEmpty. open() maps the file read-only, so lookups read
+// straight from the page cache and the table is shared by every player using it.
+class Tablebase {
+    static final int LOSS = PerfectPlayTable.LOSS;
+    static final int DRAW = PerfectPlayTable.DRAW;
+    static final int WIN = PerfectPlayTable.WIN;
+    static final int MAX_EMPTY = 63; // distances must fit in six bits
+
+    private static final int MAGIC = 0x54545452; // "TTTR"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int CHUNK = 1 << 14; // positions a task solves without splitting further
+
+    private final int size;
+    private final int winLength;
+    private final int cells;
+    private final int maxEmpty;
+    private final long[] binomial; // binomial[n * (cells + 1) + k]
+    private final long[] lines;    // every winning window as a mask
+    private final long[] layerOffset;
+    private ByteBuffer data;
+
+    private Tablebase(int size, int winLength, int maxEmpty) {
+        if (size * size > 64) throw new IllegalArgumentException("Tablebases cover boards of up to 64 slots");
+        if (maxEmpty > Math.min(MAX_EMPTY, size * size)) throw new IllegalArgumentException("Too many empty slots");
+        this.size = size;
+        this.winLength = winLength;
+        this.cells = size * size;
+        this.maxEmpty = maxEmpty;
+        this.binomial = new long[(cells + 1) * (cells + 1)];
+        for (int n = 0; n <= cells; n++) {
+            binomial[n * (cells + 1)] = 1;
+            for (int k = 1; k <= n; k++) {
+                binomial[n * (cells + 1) + k] = choose(n - 1, k - 1) + choose(n - 1, k);
+            }
+        }
+        this.lines = lineMasks(size, winLength);
+        this.layerOffset = new long[maxEmpty + 2];
+        layerOffset[0] = HEADER_SIZE;
+        for (int empty = 0; empty <= maxEmpty; empty++) {
+            layerOffset[empty + 1] = layerOffset[empty] + layerSize(empty);
+        }
+    }
+
+    // Maps a generated tablebase file for lookups
+    static Tablebase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException(file + " is not a tablebase");
+            }
+            Tablebase table = new Tablebase(header.getInt(8), header.getInt(12), header.getInt(16));
+            long length = table.layerOffset[table.maxEmpty + 1];
+            if (length > Integer.MAX_VALUE || channel.size() < length) {
+                throw new IOException(file + " is truncated or too large to map");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            table.data = mapped;
+            return table;
+        }
+    }
+
+    /**
+     * Solves every position with up to maxEmpty empty slots and writes the
+     * table to file, solving the positions of each layer in parallel on pool.
+     */
+    static void generate(int size, int winLength, int maxEmpty, Path file, ForkJoinPool pool) throws IOException {
+        Tablebase table = new Tablebase(size, winLength, maxEmpty);
+        long length = table.layerOffset[maxEmpty + 1];
+        if (length > Integer.MAX_VALUE) throw new IllegalArgumentException("Table would exceed 2 GB");
+        byte[] bytes = new byte[(int) length];
+        ByteBuffer.wrap(bytes).putInt(MAGIC).putInt(VERSION).putInt(size).putInt(winLength).putInt(maxEmpty);
+        table.data = ByteBuffer.wrap(bytes);
+        for (int empty = 0; empty <= maxEmpty; empty++) {
+            pool.invoke(table.new LayerTask(bytes, empty, 0, table.layerSize(empty)));
+        }
+        Files.write(file, bytes);
+    }
+
+    public int getMaxEmpty() {
+        return maxEmpty;
+    }
+
+    // Packed entry for board, or -1 when the table does not cover it
+    public int probe(Board board) {
+        if (!covers(board)) return -1;
+        return entry(maskOf(board, 0), maskOf(board, 1));
+    }
+
+    static int valueOf(int entry) {
+        return entry & 0x3;
+    }
+
+    static int distanceOf(int entry) {
+        return entry >>> 2;
+    }
+
+    /**
+     * Best move for the side to move, or -1 when the table does not cover the
+     * position: the quickest win, else the quickest draw, else the slowest loss.
+     */
+    public int bestMove(Board board) {
+        if (!covers(board) || board.getStatus() != Board.IN_PROGRESS) return -1;
+        long first = maskOf(board, 0);
+        long second = maskOf(board, 1);
+        boolean firstToMove = board.getSideToMove() == 0;
+        long mover = firstToMove ? first : second;
+        int bestMove = -1;
+        int bestRank = Integer.MIN_VALUE;
+        for (long rest = ~(first | second) & fullMask(); rest != 0; rest &= rest - 1) {
+            long bit = rest & -rest;
+            if (hasLine(mover | bit)) return Long.numberOfTrailingZeros(bit); // wins at once
+            int entry = firstToMove ? entry(first | bit, second) : entry(first, second | bit);
+            int distance = distanceOf(entry);
+            // The reply's value is for the opponent, who is to move after it
+            int value = valueOf(entry);
+            int rank = value == LOSS ? 1000 - distance : value == DRAW ? -distance : -1000 + distance;
+            if (rank > bestRank) {
+                bestRank = rank;
+                bestMove = Long.numberOfTrailingZeros(bit);
+            }
+        }
+        return bestMove;
+    }
+
+    private boolean covers(Board board) {
+        return board.getSize() == size && board.getWinLength() == winLength
+            && board.getCellCount() - board.getMoveCount() <= maxEmpty;
+    }
+
+    private long maskOf(Board board, int side) {
+        long mask = 0;
+        for (int slot = 0; slot < cells; slot++) {
+            if (board.getOwner(slot) == side) mask |= 1L << slot;
+        }
+        return mask;
+    }
+
+    private int entry(long first, long second) {
+        long empty = ~(first | second) & fullMask();
+        int emptyCount = Long.bitCount(empty);
+        return data.get((int) (layerOffset[emptyCount] + index(empty, first, emptyCount))) & 0xFF;
+    }
+
+    private long index(long emptyMask, long firstMask, int emptyCount) {
+        int filled = cells - emptyCount;
+        long emptyRank = rank(emptyMask);
+        // Rank the first player's marks by their position among the filled slots
+        long firstRank = 0;
+        int ordinal = 0;
+        int chosen = 0;
+        for (int slot = 0; slot < cells; slot++) {
+            if ((emptyMask & (1L << slot)) != 0) continue;
+            if ((firstMask & (1L << slot)) != 0) firstRank += choose(ordinal, ++chosen);
+            ordinal++;
+        }
+        return emptyRank * choose(filled, (filled + 1) / 2) + firstRank;
+    }
+
+    // Solves one position from the layer below
+    private int solve(byte[] bytes, long first, long second, int emptyCount) {
+        boolean firstToMove = (cells - emptyCount) % 2 == 0;
+        long mover = firstToMove ? first : second;
+        long waiting = firstToMove ? second : first;
+        if (hasLine(mover)) return 0;                 // the side to move already won earlier: unreachable
+        if (hasLine(waiting)) return LOSS;            // the last move won
+        if (emptyCount == 0) return DRAW;
+
+        long empty = ~(first | second) & fullMask();
+        int winDistance = Integer.MAX_VALUE;
+        int drawDistance = Integer.MAX_VALUE;
+        int lossDistance = -1;
+        for (long rest = empty; rest != 0; rest &= rest - 1) {
+            long bit = rest & -rest;
+            if (hasLine(mover | bit)) return 1 << 2 | WIN;
+            long childFirst = firstToMove ? first | bit : first;
+            long childSecond = firstToMove ? second : second | bit;
+            long childEmpty = empty & ~bit;
+            int child = bytes[(int) (layerOffset[emptyCount - 1] + index(childEmpty, childFirst, emptyCount - 1))];
+            int distance = distanceOf(child & 0xFF) + 1;
+            switch (valueOf(child)) {
+                case LOSS:
+                    winDistance = Math.min(winDistance, distance);
+                    break;
+                case DRAW:
+                    drawDistance = Math.min(drawDistance, distance);
+                    break;
+                default:
+                    lossDistance = Math.max(lossDistance, distance);
+            }
+        }
+        if (winDistance != Integer.MAX_VALUE) return winDistance << 2 | WIN;
+        if (drawDistance != Integer.MAX_VALUE) return drawDistance << 2 | DRAW;
+        return lossDistance << 2 | LOSS;
+    }
+
+    private boolean hasLine(long mask) {
+        for (long line : lines) {
+            if ((mask & line) == line) return true;
+        }
+        return false;
+    }
+
+    private long fullMask() {
+        return cells == 64 ? -1L : (1L << cells) - 1;
+    }
+
+    private long layerSize(int empty) {
+        int filled = cells - empty;
+        return choose(cells, empty) * choose(filled, (filled + 1) / 2);
+    }
+
+    private long choose(int n, int k) {
+        return k < 0 || k > n ? 0 : binomial[n * (cells + 1) + k];
+    }
+
+    // Combinatorial number system rank of a set of slots
+    private long rank(long mask) {
+        long result = 0;
+        int i = 0;
+        for (long rest = mask; rest != 0; rest &= rest - 1) {
+            result += choose(Long.numberOfTrailingZeros(rest), ++i);
+        }
+        return result;
+    }
+
+    // Inverse of rank: the k-slot set with the given rank among n slots
+    private long unrank(long rank, int k, int n) {
+        long mask = 0;
+        int top = n;
+        for (int i = k; i >= 1; i--) {
+            int c = i - 1;
+            while (c + 1 < top && choose(c + 1, i) <= rank) c++;
+            mask |= 1L << c;
+            rank -= choose(c, i);
+            top = c;
+        }
+        return mask;
+    }
+
+    private static long[] lineMasks(int size, int winLength) {
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        long[] found = new long[size * size * 4];
+        int count = 0;
+        for (int[] dir : directions) {
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    int endRow = row + dir[0] * (winLength - 1);
+                    int endCol = col + dir[1] * (winLength - 1);
+                    if (endRow >= size || endCol < 0 || endCol >= size) continue;
+                    long line = 0;
+                    for (int i = 0; i < winLength; i++) line |= 1L << ((row + dir[0] * i) * size + col + dir[1] * i);
+                    found[count++] = line;
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    private class LayerTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] bytes;
+        private final int empty;
+        private final long from;
+        private final long to;
+
+        LayerTask(byte[] bytes, int empty, long from, long to) {
+            this.bytes = bytes;
+            this.empty = empty;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK) {
+                long middle = (from + to) >>> 1;
+                invokeAll(new LayerTask(bytes, empty, from, middle), new LayerTask(bytes, empty, middle, to));
+                return;
+            }
+            int filled = cells - empty;
+            int firstCount = (filled + 1) / 2;
+            long placements = choose(filled, firstCount);
+            int base = (int) layerOffset[empty];
+            for (long index = from; index < to; index++) {
+                long emptyMask = unrank(index / placements, empty, cells);
+                long firstOrdinals = unrank(index % placements, firstCount, filled);
+                // Spread the ordinal set over the filled slots
+                long first = 0;
+                long second = 0;
+                int ordinal = 0;
+                for (int slot = 0; slot < cells; slot++) {
+                    if ((emptyMask & (1L << slot)) != 0) continue;
+                    if ((firstOrdinals & (1L << ordinal)) != 0) first |= 1L << slot;
+                    else second |= 1L << slot;
+                    ordinal++;
+                }
+                bytes[base + (int) index] = (byte) solve(bytes, first, second, empty);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        // Optional arguments: board size, win length, most empty slots and output file
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int winLength = args.length > 1 ? Integer.parseInt(args[1]) : size;
+        int maxEmpty = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        Path file = Paths.get(args.length > 3 ? args[3] : "tablebase-" + size + "x" + size + "-" + winLength + ".bin");
+
+        long start = System.nanoTime();
+        generate(size, winLength, maxEmpty, file, ForkJoinPool.commonPool());
+        System.out.printf("%s: positions with up to %d empty slots, %,d bytes in %.1f s on %d threads%n", file,
+            maxEmpty, Files.size(file), (System.nanoTime() - start) / 1e9, ForkJoinPool.commonPool().getParallelism());
+    }
+}
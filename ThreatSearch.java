@@ -0,0 +1,238 @@
+import java.util.Arrays;
+
+// ----------- Threat-space search --------------
+// Looks for a victory by continuous fours (VCF): a sequence where every attacking move
+// leaves a window one mark short of K, so the defender's reply is forced, ending in a
+// move that leaves two such windows with different gaps. Only forcing moves are tried,
+// so a VCF many moves long costs a few thousand nodes where full-width alpha-beta
+// would need millions.
+//
+// Threats are tracked incrementally: every K-long window keeps a mark count per side,
+// updated through the windows crossing each slot as moves are made and taken back.
+// A window with K-1 of one side's marks and none of the other's is a threat on its gap.
+// Keeps per-board buffers, so one instance should not be shared between threads.
+class ThreatSearch {
+    private static final int DEFAULT_MAX_DEPTH = 20;       // attacking moves in one sequence
+    private static final int DEFAULT_MAX_NODES = 200_000;  // per findWin call without a deadline
+    private static final int DEADLINE_CHECK_NODES = 64;    // nodes between clock reads, a power of two
+
+    private final int maxDepth;
+    private final int maxNodes;
+
+    // Line structure for the current board dimensions
+    private int size = -1;
+    private int winLength = -1;
+    private int[] windowCells = new int[0];    // K slots per window
+    private int[][] windowsThrough = new int[0][];
+    private int[][] counts = new int[2][0];    // marks per side in each window
+    private boolean[] occupied = new boolean[0];
+    private int[][] candidates = new int[0][]; // per depth
+    private int[] seen = new int[0];           // stamp per slot, to list each candidate once
+    private int stamp;
+
+    private long nodes;
+    private long deadline;
+    private boolean hasDeadline;
+    private boolean stopped; // node limit or deadline reached
+
+    public ThreatSearch() {
+        this(DEFAULT_MAX_DEPTH, DEFAULT_MAX_NODES);
+    }
+
+    public ThreatSearch(int maxDepth, int maxNodes) {
+        this.maxDepth = maxDepth;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * First move of a forced win for the side to move by continuous threats,
+     * including an immediate win, or -1 if none was found within the node limit.
+     * Leaves the board as it found it.
+     */
+    public int findWin(Board board) {
+        hasDeadline = false;
+        return search(board);
+    }
+
+    /**
+     * Like findWin(board), but searches until System.nanoTime() reaches
+     * deadline instead of stopping at the node limit.
+     */
+    public int findWin(Board board, long deadline) {
+        this.deadline = deadline;
+        hasDeadline = true;
+        return search(board);
+    }
+
+    private int search(Board board) {
+        if (board.getStatus() != Board.IN_PROGRESS) return -1;
+        stopped = false;
+        prepare(board);
+        load(board);
+        nodes = 0;
+        int attacker = board.getSideToMove();
+        int win = threatSlot(attacker);
+        if (win >= 0) return win;
+        if (threatSlot(1 - attacker) >= 0) return -1; // must defend first; not a continuous-threat position
+        return vcf(board, attacker, 0);
+    }
+
+    // Positions visited by the last findWin call
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    // Attacking moves that make a threat and the forced reply to each, searched depth first
+    private int vcf(Board board, int attacker, int depth) {
+        if (depth == maxDepth) return -1;
+        int defender = 1 - attacker;
+        int count = listCandidates(attacker, candidates[depth]);
+        for (int i = 0; i < count; i++) {
+            int move = candidates[depth][i];
+            if (exhausted()) return -1;
+            if (place(board, move, attacker) != Board.IN_PROGRESS) {
+                remove(board, move, attacker);
+                continue;
+            }
+            int gap = -1;
+            boolean doubleThreat = false;
+            for (int w : windowsThrough[move]) {
+                if (counts[attacker][w] == winLength - 1 && counts[defender][w] == 0) {
+                    int slot = gapOf(w);
+                    if (gap < 0) gap = slot;
+                    else if (slot != gap) doubleThreat = true;
+                }
+            }
+            boolean won = doubleThreat;
+            if (!won && gap >= 0) {
+                // The defender must fill the gap; a reply that makes its own threat breaks the sequence
+                if (place(board, gap, defender) == Board.IN_PROGRESS && !makesThreat(gap, defender)) {
+                    won = vcf(board, attacker, depth + 1) >= 0;
+                }
+                remove(board, gap, defender);
+            }
+            remove(board, move, attacker);
+            if (won) return move;
+        }
+        return -1;
+    }
+
+    // Counts a node; true once the node limit or the deadline is reached
+    private boolean exhausted() {
+        if (stopped) return true;
+        nodes++;
+        if (hasDeadline) {
+            stopped = (nodes & (DEADLINE_CHECK_NODES - 1)) == 0 && System.nanoTime() >= deadline;
+        } else {
+            stopped = nodes > maxNodes;
+        }
+        return stopped;
+    }
+
+    // Empty slots of windows holding K-2 attacker marks and no defender marks
+    private int listCandidates(int attacker, int[] out) {
+        int defender = 1 - attacker;
+        int[] own = counts[attacker];
+        int[] other = counts[defender];
+        stamp++;
+        int count = 0;
+        for (int w = 0; w < own.length; w++) {
+            if (own[w] != winLength - 2 || other[w] != 0) continue;
+            for (int i = w * winLength; i < (w + 1) * winLength; i++) {
+                int slot = windowCells[i];
+                if (seen[slot] != stamp && !occupied[slot]) {
+                    seen[slot] = stamp;
+                    out[count++] = slot;
+                }
+            }
+        }
+        return count;
+    }
+
+    // Gap of some threat of side, or -1
+    private int threatSlot(int side) {
+        for (int w = 0; w < counts[side].length; w++) {
+            if (counts[side][w] == winLength - 1 && counts[1 - side][w] == 0) return gapOf(w);
+        }
+        return -1;
+    }
+
+    private boolean makesThreat(int slot, int side) {
+        for (int w : windowsThrough[slot]) {
+            if (counts[side][w] == winLength - 1 && counts[1 - side][w] == 0) return true;
+        }
+        return false;
+    }
+
+    private int place(Board board, int slot, int side) {
+        for (int w : windowsThrough[slot]) counts[side][w]++;
+        occupied[slot] = true;
+        return board.makeMove(slot);
+    }
+
+    private void remove(Board board, int slot, int side) {
+        for (int w : windowsThrough[slot]) counts[side][w]--;
+        occupied[slot] = false;
+        board.undoMove(slot);
+    }
+
+    private int gapOf(int window) {
+        for (int i = window * winLength; i < (window + 1) * winLength; i++) {
+            if (!occupied[windowCells[i]]) return windowCells[i];
+        }
+        return -1;
+    }
+
+    private void load(Board board) {
+        Arrays.fill(counts[0], 0);
+        Arrays.fill(counts[1], 0);
+        for (int slot = 0; slot < occupied.length; slot++) {
+            int owner = board.getOwner(slot);
+            occupied[slot] = owner >= 0;
+            if (owner >= 0) {
+                for (int w : windowsThrough[slot]) counts[owner][w]++;
+            }
+        }
+    }
+
+    private void prepare(Board board) {
+        if (board.getSize() == size && board.getWinLength() == winLength) return;
+        size = board.getSize();
+        winLength = board.getWinLength();
+        int cells = size * size;
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+
+        int[] found = new int[cells * 4 * winLength];
+        int[] through = new int[cells];
+        int windows = 0;
+        for (int[] dir : directions) {
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    int endRow = row + dir[0] * (winLength - 1);
+                    int endCol = col + dir[1] * (winLength - 1);
+                    if (endRow >= size || endCol < 0 || endCol >= size) continue;
+                    for (int i = 0; i < winLength; i++) {
+                        int slot = (row + dir[0] * i) * size + col + dir[1] * i;
+                        found[windows * winLength + i] = slot;
+                        through[slot]++;
+                    }
+                    windows++;
+                }
+            }
+        }
+        windowCells = Arrays.copyOf(found, windows * winLength);
+        windowsThrough = new int[cells][];
+        for (int slot = 0; slot < cells; slot++) windowsThrough[slot] = new int[through[slot]];
+        int[] filled = new int[cells];
+        for (int w = 0; w < windows; w++) {
+            for (int i = w * winLength; i < (w + 1) * winLength; i++) {
+                int slot = windowCells[i];
+                windowsThrough[slot][filled[slot]++] = w;
+            }
+        }
+        counts = new int[2][windows];
+        candidates = new int[maxDepth + 1][cells];
+        seen = new int[cells];
+        occupied = new boolean[cells];
+    }
+}
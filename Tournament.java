@@ -0,0 +1,169 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+// ----------- Parallel self-play tournament --------------
+// Round-robin between entrants, each pairing played from both sides. Games are
+// split into fork/join tasks; every worker thread keeps its own HeadlessGame and
+// player instances, and finished chunks add their tallies to shared atomic counters.
+public class Tournament {
+    private static final int CHUNK = 1024; // games a task plays without splitting further
+
+    private final int size;
+    private final int winLength;
+    private final int gamesPerPairing;
+    private final List<String> names = new ArrayList<>();
+    private final List<Function<String, Player>> factories = new ArrayList<>();
+
+    private AtomicLongArray tallies; // [first][second][outcome], outcome as in HeadlessGame
+    private ThreadLocal<Worker> workers;
+    private long elapsedNanos;
+    private int threads;
+
+    public Tournament(int size, int winLength, int gamesPerPairing) {
+        this.size = size;
+        this.winLength = winLength;
+        this.gamesPerPairing = gamesPerPairing;
+    }
+
+    // The factory receives the symbol to play and is called once per worker thread
+    public void addEntrant(String name, Function<String, Player> factory) {
+        names.add(name);
+        factories.add(factory);
+    }
+
+    public void run(ForkJoinPool pool) {
+        int count = names.size();
+        tallies = new AtomicLongArray(count * count * 3);
+        workers = ThreadLocal.withInitial(Worker::new);
+        threads = pool.getParallelism();
+
+        List<PairingTask> tasks = new ArrayList<>();
+        for (int first = 0; first < count; first++) {
+            for (int second = 0; second < count; second++) {
+                if (first != second) tasks.add(new PairingTask(first, second, 0, gamesPerPairing));
+            }
+        }
+        long start = System.nanoTime();
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+        elapsedNanos = System.nanoTime() - start;
+    }
+
+    // Games entrant first won, lost and drew when moving first against second
+    public long getWins(int first, int second) {
+        return tallies.get(slot(first, second, HeadlessGame.FIRST_WINS));
+    }
+
+    public long getLosses(int first, int second) {
+        return tallies.get(slot(first, second, HeadlessGame.SECOND_WINS));
+    }
+
+    public long getDraws(int first, int second) {
+        return tallies.get(slot(first, second, HeadlessGame.DRAW));
+    }
+
+    public long getTotalGames() {
+        long total = 0;
+        for (int i = 0; i < tallies.length(); i++) total += tallies.get(i);
+        return total;
+    }
+
+    public double getGamesPerSecond() {
+        return getTotalGames() * 1e9 / elapsedNanos;
+    }
+
+    public void printReport() {
+        System.out.println("First vs second: wins / draws / losses for the first player");
+        for (int first = 0; first < names.size(); first++) {
+            for (int second = 0; second < names.size(); second++) {
+                if (first == second) continue;
+                System.out.printf("%-10s vs %-10s %10d / %10d / %10d%n", names.get(first), names.get(second),
+                    getWins(first, second), getDraws(first, second), getLosses(first, second));
+            }
+        }
+        System.out.printf("%d games in %.2f s on %d threads: %.0f games/sec%n", getTotalGames(),
+            elapsedNanos / 1e9, threads, getGamesPerSecond());
+    }
+
+    private int slot(int first, int second, int outcome) {
+        return (first * names.size() + second) * 3 + outcome;
+    }
+
+    // Per-thread board and players, created the first time a thread plays
+    private class Worker {
+        final HeadlessGame game = new HeadlessGame(size, winLength);
+        final Player[] asFirst = new Player[names.size()];
+        final Player[] asSecond = new Player[names.size()];
+
+        Player first(int entrant) {
+            if (asFirst[entrant] == null) asFirst[entrant] = factories.get(entrant).apply("X");
+            return asFirst[entrant];
+        }
+
+        Player second(int entrant) {
+            if (asSecond[entrant] == null) asSecond[entrant] = factories.get(entrant).apply("O");
+            return asSecond[entrant];
+        }
+    }
+
+    private class PairingTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int first;
+        private final int second;
+        private final int from;
+        private final int to;
+
+        PairingTask(int first, int second, int from, int to) {
+            this.first = first;
+            this.second = second;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PairingTask(first, second, from, middle), new PairingTask(first, second, middle, to));
+                return;
+            }
+            Worker worker = workers.get();
+            Player x = worker.first(first);
+            Player o = worker.second(second);
+            long[] counts = new long[3];
+            for (int i = from; i < to; i++) {
+                counts[HeadlessGame.outcomeOf(worker.game.play(x, o))]++;
+            }
+            for (int outcome = 0; outcome < 3; outcome++) {
+                if (counts[outcome] != 0) tallies.addAndGet(slot(first, second, outcome), counts[outcome]);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        // Optional arguments: games per pairing, comma-separated player types, board size and win length
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        String[] types = (args.length > 1 ? args[1] : "random,perfect,computer").split(",");
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        int winLength = args.length > 3 ? Integer.parseInt(args[3]) : Math.min(size, 5);
+
+        Tournament tournament = new Tournament(size, winLength, games);
+        for (String type : types) {
+            // Entrants play unattended on worker threads, so only types that need no console qualify
+            if (type.equalsIgnoreCase("human") || PlayerFactory.createPlayer(type, type, "X", null) == null) {
+                throw new IllegalArgumentException("Unsupported player type for a tournament: " + type);
+            }
+            tournament.addEntrant(type, symbol -> PlayerFactory.createPlayer(type, type, symbol, null));
+        }
+        tournament.run(ForkJoinPool.commonPool());
+        tournament.printReport();
+    }
+}
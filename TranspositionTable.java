@@ -0,0 +1,102 @@
+import java.util.Arrays;
+
+// ----------- Transposition Table --------------
+// Fixed-size, open-addressed cache of search results keyed by canonical position key.
+// Entries live in two parallel long arrays, so the table never grows or allocates after construction.
+class TranspositionTable {
+    static final int EXACT = 1;
+    static final int LOWER = 2; // score is at least the stored value
+    static final int UPPER = 3; // score is at most the stored value
+    static final int NO_MOVE = 0xFFFF;
+    static final int MAX_DEPTH = 0xFF; // deepest depth the entry's depth field holds
+
+    private static final int BUCKET = 4; // slots probed per key
+
+    // Packed entry: score (32) | move (16) | depth (8) | generation (6) | bound (2).
+    // A zero entry is an empty slot since stored bounds are never zero.
+    private final long[] keys;
+    private final long[] entries;
+    private final int mask;
+    private int generation = 1;
+
+    public TranspositionTable(int capacity) {
+        int slots = Integer.highestOneBit(Math.max(capacity, BUCKET) - 1) << 1;
+        keys = new long[slots];
+        entries = new long[slots];
+        mask = slots - 1;
+    }
+
+    // Marks entries from earlier searches as the first to be replaced
+    public void newSearch() {
+        generation = (generation + 1) & 0x3F;
+        if (generation == 0) generation = 1;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(entries, 0);
+    }
+
+    // Returns the packed entry for key, or 0 if it is not cached
+    public long probe(long key) {
+        int slot = index(key);
+        for (int i = 0; i < BUCKET; i++, slot = (slot + 1) & mask) {
+            if (keys[slot] == key && entries[slot] != 0) return entries[slot];
+        }
+        return 0;
+    }
+
+    /**
+     * Stores a result, replacing in order: the same position, an empty slot,
+     * then the shallowest entry with entries from older searches going first.
+     */
+    public void store(long key, int score, int move, int depth, int bound) {
+        int slot = index(key);
+        int victim = -1;
+        int victimRank = Integer.MAX_VALUE;
+        for (int i = 0; i < BUCKET; i++, slot = (slot + 1) & mask) {
+            long entry = entries[slot];
+            if (entry == 0 || keys[slot] == key) {
+                if (entry != 0 && depth < depthOf(entry) && generationOf(entry) == generation && bound != EXACT) {
+                    return; // keep the deeper result for this position
+                }
+                victim = slot;
+                break;
+            }
+            int rank = depthOf(entry) + (generationOf(entry) == generation ? 256 : 0);
+            if (rank < victimRank) {
+                victimRank = rank;
+                victim = slot;
+            }
+        }
+        keys[victim] = key;
+        entries[victim] = ((long) score << 32) | ((long) (move & 0xFFFF) << 16)
+            | ((long) (depth & 0xFF) << 8) | ((long) generation << 2) | bound;
+    }
+
+    static int scoreOf(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    static int moveOf(long entry) {
+        return (int) (entry >>> 16) & 0xFFFF;
+    }
+
+    static int depthOf(long entry) {
+        return (int) (entry >>> 8) & 0xFF;
+    }
+
+    static int boundOf(long entry) {
+        return (int) entry & 0x3;
+    }
+
+    private static int generationOf(long entry) {
+        return (int) (entry >>> 2) & 0x3F;
+    }
+
+    // Keys may be packed board masks rather than hashes, so spread them first
+    private int index(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+}
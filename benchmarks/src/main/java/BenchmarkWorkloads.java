@@ -0,0 +1,137 @@
+import java.util.function.IntSupplier;
+
+// ----------- Benchmark workloads --------------
+// The game classes live in the default package, which JMH benchmark classes cannot
+// use, so each workload lives here as an IntSupplier the benchmarks load by name.
+// Every workload takes the board size; the win length is the one Geeks picks for it.
+public class BenchmarkWorkloads {
+
+    static Board openingPosition(int size) {
+        Board board = new Board(size, Math.min(size, 5));
+        ComputerPlayer opener = new ComputerPlayer("opener", "X", 1);
+        int moves = size <= 3 ? 2 : size <= 4 ? 4 : 8;
+        for (int i = 0; i < moves; i++) {
+            board.makeMove(opener.getMove(board));
+        }
+        return board;
+    }
+
+    // Plays and takes back each free slot of an opening position in turn
+    public static class PlaceMark implements IntSupplier {
+        private final Board board;
+        private final int[] free;
+        private int next;
+
+        public PlaceMark(int size) {
+            board = openingPosition(size);
+            free = freeSlots(board);
+        }
+
+        @Override
+        public int getAsInt() {
+            int slot = free[next];
+            next = next + 1 == free.length ? 0 : next + 1;
+            int status = board.makeMove(slot);
+            board.undoMove(slot);
+            return status;
+        }
+    }
+
+    // Counts the free slots of an opening position
+    public static class IsSlotAvailable implements IntSupplier {
+        private final Board board;
+
+        public IsSlotAvailable(int size) {
+            board = openingPosition(size);
+        }
+
+        @Override
+        public int getAsInt() {
+            int free = 0;
+            for (int i = 0; i < board.getCellCount(); i++) {
+                if (board.isSlotAvailable(i)) free++;
+            }
+            return free;
+        }
+    }
+
+    // Places a winning mark, reads the outcome through checkWinner and takes the mark back
+    public static class CheckWinner implements IntSupplier {
+        private final Board board;
+        private final int winningSlot;
+
+        public CheckWinner(int size) {
+            int winLength = Math.min(size, 5);
+            board = new Board(size, winLength);
+            // First player holds the start of the top row, the second player the bottom row
+            for (int col = 0; col < winLength - 1; col++) {
+                board.placeMark(col, "X");
+                board.placeMark(size * (size - 1) + col, "O");
+            }
+            winningSlot = winLength - 1;
+        }
+
+        @Override
+        public int getAsInt() {
+            board.placeMark(winningSlot, "X");
+            String winner = board.checkWinner();
+            board.undoMove(winningSlot);
+            return winner == null ? 0 : winner.length();
+        }
+    }
+
+    // One complete random-vs-random game on a reused board
+    public static class HeadlessGameLoop implements IntSupplier {
+        private final HeadlessGame game;
+        private final Player first = new RandomPlayer("first", "X", 1);
+        private final Player second = new RandomPlayer("second", "O", 2);
+
+        public HeadlessGameLoop(int size) {
+            game = new HeadlessGame(size, Math.min(size, 5));
+        }
+
+        @Override
+        public int getAsInt() {
+            return game.play(first, second);
+        }
+    }
+
+    // Cold ComputerPlayer search from an opening position
+    public static class ComputerMove implements IntSupplier {
+        private final Board board;
+        private final ComputerPlayer player = new ComputerPlayer("computer", "X");
+
+        public ComputerMove(int size) {
+            board = openingPosition(size);
+        }
+
+        @Override
+        public int getAsInt() {
+            player.clearTable();
+            return player.getMove(board);
+        }
+    }
+
+    // PerfectPlayer table lookup from an opening position
+    public static class PerfectMove implements IntSupplier {
+        private final Board board;
+        private final PerfectPlayer player = new PerfectPlayer("perfect", "X");
+
+        public PerfectMove(int size) {
+            board = openingPosition(size);
+        }
+
+        @Override
+        public int getAsInt() {
+            return player.getMove(board);
+        }
+    }
+
+    private static int[] freeSlots(Board board) {
+        int[] free = new int[board.getCellCount() - board.getMoveCount()];
+        for (int i = 0, count = 0; i < board.getCellCount(); i++) {
+            if (board.isSlotAvailable(i)) free[count++] = i;
+        }
+        return free;
+    }
+}
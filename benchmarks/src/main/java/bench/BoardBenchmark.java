@@ -0,0 +1,42 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+    @Param({"3", "4", "15"})
+    int size;
+
+    private IntSupplier placeMark;
+    private IntSupplier isSlotAvailable;
+    private IntSupplier checkWinner;
+
+    @Setup
+    public void setUp() {
+        placeMark = Workloads.create("PlaceMark", size);
+        isSlotAvailable = Workloads.create("IsSlotAvailable", size);
+        checkWinner = Workloads.create("CheckWinner", size);
+    }
+
+    @Benchmark
+    public int placeMarkAndUndo() {
+        return placeMark.getAsInt();
+    }
+
+    @Benchmark
+    public int isSlotAvailableScan() {
+        return isSlotAvailable.getAsInt();
+    }
+
+    @Benchmark
+    public int checkWinnerAfterWinningMove() {
+        return checkWinner.getAsInt();
+    }
+}
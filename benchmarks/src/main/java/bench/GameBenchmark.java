@@ -0,0 +1,28 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+    @Param({"3", "4", "15"})
+    int size;
+
+    private IntSupplier game;
+
+    @Setup
+    public void setUp() {
+        game = Workloads.create("HeadlessGameLoop", size);
+    }
+
+    @Benchmark
+    public int headlessRandomGame() {
+        return game.getAsInt();
+    }
+}
@@ -0,0 +1,36 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerBenchmark {
+    @Param({"3", "4", "15"})
+    int size;
+
+    private IntSupplier computerMove;
+    private IntSupplier perfectMove;
+
+    @Setup
+    public void setUp() {
+        computerMove = Workloads.create("ComputerMove", size);
+        perfectMove = Workloads.create("PerfectMove", size);
+    }
+
+    @Benchmark
+    public int computerGetMove() {
+        return computerMove.getAsInt();
+    }
+
+    // Only a table lookup on 3x3; larger sizes measure the search fallback
+    @Benchmark
+    public int perfectGetMove() {
+        return perfectMove.getAsInt();
+    }
+}
@@ -0,0 +1,18 @@
+package bench;
+
+import java.util.function.IntSupplier;
+
+// Loads a workload from BenchmarkWorkloads; reflection is only used during setup
+final class Workloads {
+    private Workloads() {
+    }
+
+    static IntSupplier create(String name, int size) {
+        try {
+            Class<?> type = Class.forName("BenchmarkWorkloads$" + name);
+            return (IntSupplier) type.getConstructor(int.class).newInstance(size);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create workload " + name, e);
+        }
+    }
+}